@@ -0,0 +1,40 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    private ChessBoard board;
+    private ChessBoard copy;
+
+    @Setup
+    public void setup() {
+        board = new ChessBoard();
+        board.resetBoard();
+        copy = new ChessBoard(board);
+    }
+
+    @Benchmark
+    public ChessBoard resetBoard() {
+        board.resetBoard();
+        return board;
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return board.equals(copy);
+    }
+
+    @Benchmark
+    public int hashCodeBoard() {
+        return board.hashCode();
+    }
+}
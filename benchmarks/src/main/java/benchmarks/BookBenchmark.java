@@ -0,0 +1,84 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.MoveList;
+import chess.book.OpeningBook;
+import chess.book.OpeningBookBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes and opens of an opening book built from random games. The 10,000 game book
+ * holds 135,794 records (2.2 MB), the 200,000 game book 2,482,668 records (40 MB).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class BookBenchmark {
+
+    private static final int PLIES = 16;
+    private static final int PROBES = 1024;
+
+    // random games spread over far more positions than real openings do
+    @Param({"10000", "200000"})
+    public int games;
+
+    private Path file;
+    private OpeningBook book;
+    private final long[] keys = new long[PROBES];
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(PLIES);
+        Random random = new Random(240);
+        MoveList moves = new MoveList();
+        for (int g = 0; g < games; g++) {
+            ChessGame game = new ChessGame();
+            int[] line = new int[PLIES];
+            int plies = 0;
+            while (plies < PLIES) {
+                moves.clear();
+                if (game.legalMoves(moves) == 0) {
+                    break;
+                }
+                line[plies] = moves.get(random.nextInt(moves.size()));
+                game.makeMove(line[plies++]);
+                // half the probes land in book, half just past it
+                if (g < PROBES && plies == PLIES / 2 + (g & 1) * PLIES / 2) {
+                    keys[g] = game.getZobristKey();
+                }
+            }
+            builder.addGame(new ChessGame(), Arrays.copyOf(line, plies), "1/2-1/2");
+        }
+        file = Files.createTempFile("book", ".bin");
+        builder.write(file);
+        book = OpeningBook.open(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        book.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long find() {
+        return book.find(keys[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public long open() throws IOException {
+        try (OpeningBook opened = OpeningBook.open(file)) {
+            return opened.size();
+        }
+    }
+}
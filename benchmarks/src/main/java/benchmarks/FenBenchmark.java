@@ -0,0 +1,51 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Perft;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class FenBenchmark {
+
+    @Param({"START", "KIWIPETE", "ENDGAME"})
+    public Perft.Position position;
+
+    private final ChessGame game = new ChessGame();
+    private final StringBuilder out = new StringBuilder(128);
+    private String fen;
+    private ByteBuffer line;
+
+    @Setup
+    public void setup() {
+        fen = position.fen();
+        line = ByteBuffer.wrap((fen + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public ChessGame parse() {
+        Fen.parse(fen, game);
+        return game;
+    }
+
+    @Benchmark
+    public ChessGame parseBuffer() {
+        Fen.parse(line.rewind(), game);
+        return game;
+    }
+
+    @Benchmark
+    public StringBuilder append() {
+        out.setLength(0);
+        Fen.append(game, out);
+        return out;
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rules queries on the perft reference positions, which between them cover castling,
+ * en passant, promotions, pins and discovered checks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    @Param({"START", "KIWIPETE", "ENDGAME", "PROMOTIONS", "DISCOVERED", "MIDDLEGAME"})
+    public Perft.Position position;
+
+    private ChessGame game;
+    private ChessPosition from;
+    private ChessMove move;
+    private int packedMove;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        game = position.newGame();
+        game.legalMoves(moves);
+        packedMove = moves.get(0);
+        move = PackedMove.toChessMove(packedMove);
+        from = move.getStartPosition();
+    }
+
+    @Benchmark
+    public Collection<ChessMove> validMoves() {
+        return game.validMoves(from);
+    }
+
+    @Benchmark
+    public int legalMoves() {
+        moves.clear();
+        return game.legalMoves(moves);
+    }
+
+    /**
+     * Validated make through the public API, undone so every call sees the same position
+     */
+    @Benchmark
+    public long makeMove() throws InvalidMoveException {
+        game.makeMove(move);
+        game.unmakeMove();
+        return game.getZobristKey();
+    }
+
+    @Benchmark
+    public long makeMovePacked() {
+        game.makeMove(packedMove);
+        game.unmakeMove();
+        return game.getZobristKey();
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pseudo-legal move generation for a single piece on a crowded middlegame board,
+ * through both the collection API and the allocation-free packed one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class PieceMovesBenchmark {
+
+    @Param({"KING", "QUEEN", "BISHOP", "KNIGHT", "ROOK", "PAWN"})
+    public ChessPiece.PieceType type;
+
+    private ChessBoard board;
+    private ChessPiece piece;
+    private ChessPosition position;
+    private int square;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        board = Perft.Position.KIWIPETE.newGame().getBoard();
+        // the first white piece of the requested type
+        square = Long.numberOfTrailingZeros(board.getBitboard(ChessGame.TeamColor.WHITE, type));
+        piece = board.getPiece(square);
+        position = ChessPosition.of(square);
+    }
+
+    @Benchmark
+    public Collection<ChessMove> pieceMoves() {
+        return piece.pieceMoves(board, position);
+    }
+
+    @Benchmark
+    public void pieceMovesPacked(Blackhole blackhole) {
+        moves.clear();
+        blackhole.consume(piece.pieceMoves(board, square, moves));
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import chess.Perft;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a whole game, the way it travels between client, server and database:
+ * Gson JSON against the {@link GameCodec} binary form
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private String json;
+    private final ByteBuffer buffer = ByteBuffer.allocate(GameCodec.MAX_GAME_BYTES);
+    private ChessGame decoded;
+
+    @Setup
+    public void setup() {
+        game = Perft.Position.KIWIPETE.newGame();
+        json = gson.toJson(game);
+        decoded = new ChessGame();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame binaryRoundTrip() {
+        buffer.clear();
+        GameCodec.encode(game, buffer);
+        GameCodec.decode(buffer.flip(), decoded);
+        return decoded;
+    }
+}
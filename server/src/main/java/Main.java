@@ -1,8 +1,29 @@
 import chess.*;
+import server.Server;
+
+import java.nio.file.Path;
 
 public class Main {
     public static void main(String[] args) {
         var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Server: " + piece);
+
+        // usage: [port] [platform|virtual] [max concurrent requests], with -Dchess.book=<file> for an opening book
+        // and -Dchess.tablebase=<directory> for endgame tables
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        var mode = args.length > 1 ? Server.ThreadMode.valueOf(args[1].toUpperCase()) : Server.ThreadMode.PLATFORM;
+        int limit = args.length > 2 ? Integer.parseInt(args[2]) : Server.DEFAULT_MAX_CONCURRENCY;
+        var server = new Server(mode, limit);
+        String book = System.getProperty("chess.book");
+        if (book != null) {
+            server.setBookFile(Path.of(book));
+        }
+        String tablebase = System.getProperty("chess.tablebase");
+        if (tablebase != null) {
+            server.setTablebaseDirectory(Path.of(tablebase));
+        }
+        port = server.run(port);
+        System.out.printf("Listening on port %d with %s threads, at most %d requests at once%n",
+                port, mode.name().toLowerCase(), limit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,286 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections, so a DAO call borrows an open connection instead
+ * of paying for a TCP and authentication handshake every time.
+ * <p>
+ * At most {@code maxSize} connections exist at once. A caller that finds them all in use
+ * waits, first come first served, for up to the acquire timeout and then gets a
+ * {@link DataAccessException}. Connections are opened lazily and handed out most recently
+ * used first, so a quiet server keeps only the few it needs warm. One that sat idle longer
+ * than the validation interval is checked with {@link Connection#isValid(int)} before it is
+ * handed out, and replaced if the database has dropped it; one a caller marks broken is
+ * closed on release.
+ * <p>
+ * Each connection keeps its own cache of prepared statements, see
+ * {@link PooledConnection#prepare(String)}.
+ * <p>
+ * The pool counts how long callers wait and how long connections are held, for
+ * {@link #getAverageWaitMillis()} and {@link #getUtilization()}.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = 30_000;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Opens a new physical connection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long acquireTimeoutNanos;
+    private final int statementCacheSize;
+    private final long validationIntervalNanos;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder heldNanos = new LongAdder();
+    private volatile long statsSince = System.nanoTime();
+
+    public ConnectionPool(ConnectionFactory factory) {
+        this(factory, DEFAULT_MAX_SIZE, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long acquireTimeoutMillis) {
+        this(factory, maxSize, acquireTimeoutMillis, DEFAULT_STATEMENT_CACHE_SIZE, DEFAULT_VALIDATION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param statementCacheSize       prepared statements kept open per connection
+     * @param validationIntervalMillis idle time after which a connection is checked before use
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long acquireTimeoutMillis,
+                          int statementCacheSize, long validationIntervalMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        if (acquireTimeoutMillis < 0 || statementCacheSize < 0 || validationIntervalMillis < 0) {
+            throw new IllegalArgumentException("Timeouts and cache size must not be negative");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        this.statementCacheSize = statementCacheSize;
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(validationIntervalMillis);
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection; closing it gives it back
+     *
+     * @throws DataAccessException if none frees up within the acquire timeout, or a new one
+     *                             cannot be opened
+     */
+    public PooledConnection acquire() throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new DataAccessException(String.format("Timed out after %d ms waiting for a database connection (%d in use)",
+                        TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos), inUse.get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection", e);
+        }
+        long now = System.nanoTime();
+        recordWait(now - start);
+
+        PooledConnection connection;
+        try {
+            connection = takeIdle(now);
+            if (connection == null) {
+                connection = new PooledConnection(this, factory.open(), statementCacheSize);
+                open.incrementAndGet();
+            }
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException("Unable to open a database connection: " + e.getMessage(), e);
+        }
+        inUse.incrementAndGet();
+        connection.lease(now);
+        return connection;
+    }
+
+    /**
+     * @return an idle connection known to be usable, or null if none is left
+     */
+    private PooledConnection takeIdle(long now) {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (now - connection.getReleasedAt() < validationIntervalNanos || isValid(connection)) {
+                return connection;
+            }
+            validationFailures.increment();
+            discard(connection);
+        }
+        return null;
+    }
+
+    private static boolean isValid(PooledConnection connection) {
+        try {
+            return connection.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        acquisitions.increment();
+        waitNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Takes a connection back from {@link PooledConnection#close()}
+     */
+    void release(PooledConnection connection, long heldFor) {
+        heldNanos.add(heldFor);
+        inUse.decrementAndGet();
+        if (closed || connection.isBroken() || !connection.reset()) {
+            discard(connection);
+        } else {
+            idle.addFirst(connection);
+        }
+        permits.release();
+        if (closed) {
+            // close() may have drained the idle list before this connection got back
+            closeIdle();
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        open.decrementAndGet();
+        connection.closePhysical();
+    }
+
+    private void closeIdle() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Closes idle connections now and the rest as they are released
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return connections currently open, in use or idle
+     */
+    public int getSize() {
+        return open.get();
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * @return callers blocked waiting for a connection right now
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return idle connections that failed their health check and were replaced
+     */
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * @return share of the pool's capacity held by callers since the stats were last
+     * reset, from 0 to 1
+     */
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - statsSince;
+        return elapsed <= 0 ? 0 : Math.min(1.0, heldNanos.sum() / ((double) elapsed * maxSize));
+    }
+
+    public void resetStats() {
+        acquisitions.reset();
+        timeouts.reset();
+        validationFailures.reset();
+        waitNanos.reset();
+        maxWaitNanos.set(0);
+        heldNanos.reset();
+        statsSince = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool{size=%d/%d, inUse=%d, waiting=%d, acquisitions=%,d, timeouts=%,d, "
+                        + "avgWait=%.3f ms, maxWait=%.3f ms, utilization=%.1f%%}",
+                getSize(), maxSize, getInUse(), getWaiting(), getAcquisitions(), getTimeouts(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getUtilization() * 100);
+    }
+}
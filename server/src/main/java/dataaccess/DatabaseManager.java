@@ -0,0 +1,129 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Reads the MySQL settings from {@code db.properties}, creates the database and its
+ * tables, and owns the server's {@link ConnectionPool}.
+ */
+public final class DatabaseManager {
+
+    private static final String DATABASE_NAME;
+    private static final String USER;
+    private static final String PASSWORD;
+    private static final String CONNECTION_URL;
+    private static final int POOL_SIZE;
+    private static final long POOL_TIMEOUT_MILLIS;
+
+    private static final String[] CREATE_STATEMENTS = {
+            """
+            CREATE TABLE IF NOT EXISTS users (
+              username VARCHAR(255) NOT NULL,
+              password VARCHAR(255) NOT NULL,
+              email VARCHAR(255) NOT NULL,
+              PRIMARY KEY (username)
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS auth_tokens (
+              token VARCHAR(255) NOT NULL,
+              username VARCHAR(255) NOT NULL,
+              PRIMARY KEY (token)
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS games (
+              id INT NOT NULL AUTO_INCREMENT,
+              white_username VARCHAR(255),
+              black_username VARCHAR(255),
+              game_name VARCHAR(255) NOT NULL,
+              game TEXT NOT NULL,
+              PRIMARY KEY (id)
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS game_moves (
+              game_id INT NOT NULL,
+              ply INT NOT NULL,
+              move INT NOT NULL,
+              PRIMARY KEY (game_id, ply)
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS game_snapshots (
+              game_id INT NOT NULL,
+              ply INT NOT NULL,
+              state VARBINARY(64) NOT NULL,
+              PRIMARY KEY (game_id, ply)
+            )""",
+    };
+
+    private static ConnectionPool pool;
+
+    static {
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
+            if (propStream == null) {
+                throw new IllegalStateException("Unable to load db.properties");
+            }
+            Properties props = new Properties();
+            props.load(propStream);
+            DATABASE_NAME = props.getProperty("db.name");
+            USER = props.getProperty("db.user");
+            PASSWORD = props.getProperty("db.password");
+            var host = props.getProperty("db.host");
+            var port = Integer.parseInt(props.getProperty("db.port"));
+            CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+            POOL_SIZE = Integer.parseInt(props.getProperty("db.pool.size", String.valueOf(ConnectionPool.DEFAULT_MAX_SIZE)));
+            POOL_TIMEOUT_MILLIS = Long.parseLong(props.getProperty("db.pool.timeoutMillis",
+                    String.valueOf(ConnectionPool.DEFAULT_ACQUIRE_TIMEOUT_MILLIS)));
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
+        }
+    }
+
+    private DatabaseManager() {
+    }
+
+    /**
+     * Creates the database if it does not already exist
+     */
+    public static void createDatabase() throws DataAccessException {
+        try (Connection conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var statement = conn.createStatement()) {
+            statement.executeUpdate("CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME);
+        } catch (SQLException e) {
+            throw new DataAccessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the database and its tables, and returns the pool connected to it; later
+     * calls return the same pool
+     */
+    public static synchronized ConnectionPool getPool() throws DataAccessException {
+        if (pool == null || pool.isClosed()) {
+            createDatabase();
+            // server-side statements, so each pooled connection's statement cache spares
+            // the server re-parsing the DAOs' queries; the driver defaults to client-side
+            String url = CONNECTION_URL + "/" + DATABASE_NAME + "?useServerPrepStmts=true";
+            ConnectionPool created = new ConnectionPool(() -> DriverManager.getConnection(url, USER, PASSWORD),
+                    POOL_SIZE, POOL_TIMEOUT_MILLIS);
+            createTables(created);
+            pool = created;
+        }
+        return pool;
+    }
+
+    /**
+     * Creates any of the server's tables that do not exist yet
+     */
+    public static void createTables(ConnectionPool pool) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire();
+             var statement = conn.getConnection().createStatement()) {
+            for (String sql : CREATE_STATEMENTS) {
+                statement.executeUpdate(sql);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to create tables: " + e.getMessage(), e);
+        }
+    }
+}
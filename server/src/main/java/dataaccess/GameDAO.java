@@ -0,0 +1,31 @@
+package dataaccess;
+
+import model.GameData;
+
+import java.util.List;
+
+public interface GameDAO {
+
+    /**
+     * Stores a new game at the starting position
+     *
+     * @return its ID
+     */
+    int createGame(String gameName) throws DataAccessException;
+
+    /**
+     * @return the game, or null if there is none with that ID
+     */
+    GameData getGame(int gameID) throws DataAccessException;
+
+    List<GameData> listGames() throws DataAccessException;
+
+    /**
+     * Replaces the stored players and position of an existing game
+     *
+     * @throws DataAccessException if there is no game with its ID
+     */
+    void updateGame(GameData game) throws DataAccessException;
+
+    void clear() throws DataAccessException;
+}
@@ -0,0 +1,176 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}. Closing it returns it to the pool;
+ * the physical connection stays open.
+ * <p>
+ * Statements from {@link #prepare(String)} are cached on the connection by their SQL, so
+ * the DAOs' fixed queries are prepared once per connection rather than once per call.
+ * That saves the server a parse only when the driver prepares statements on the server,
+ * as {@link DatabaseManager} asks MySQL's to; with client-side statements it saves just
+ * the driver's own parsing. Callers close the result sets they open but never the statements. The cache
+ * drops its least recently used statement when full.
+ * <p>
+ * Only one thread uses a borrowed connection at a time, so none of this is synchronized.
+ */
+public class PooledConnection implements AutoCloseable {
+
+    // marks statements prepared to return generated keys, which are separate statements
+    private static final String KEYS_PREFIX = "\0keys:";
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    private long leasedAt;
+    private long releasedAt;
+    private boolean leased;
+    private boolean broken;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int cacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return a prepared statement for the SQL, with its parameters cleared; do not close it
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Like {@link #prepare(String)}, for an insert whose generated keys the caller reads
+     */
+    public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+        String key = KEYS_PREFIX + sql;
+        PreparedStatement statement = statements.get(key);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            statements.put(key, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * @return the underlying connection, for transactions and one-off statements; do not
+     * close it
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return prepared statements currently cached
+     */
+    public int getCachedStatements() {
+        return statements.size();
+    }
+
+    /**
+     * Has the pool close this connection on release instead of reusing it, e.g. after an
+     * error that may have left it unusable
+     */
+    public void markBroken() {
+        broken = true;
+    }
+
+    /**
+     * Marks the connection broken if the error is a connection failure (SQL state class 08)
+     */
+    public void markBrokenIf(SQLException e) {
+        String state = e.getSQLState();
+        if (state != null && state.startsWith("08")) {
+            broken = true;
+        }
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long getReleasedAt() {
+        return releasedAt;
+    }
+
+    void lease(long now) {
+        leased = true;
+        leasedAt = now;
+    }
+
+    /**
+     * Undoes what a caller may have left behind, so the next one gets a clean connection
+     *
+     * @return false if the connection could not be reset and should be closed
+     */
+    boolean reset() {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // the connection is being thrown away either way
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // a statement that fails to close is dropped from the cache all the same
+        }
+    }
+
+    /**
+     * Returns the connection to the pool; closing it twice has no further effect
+     */
+    @Override
+    public void close() {
+        if (!leased) {
+            return;
+        }
+        leased = false;
+        releasedAt = System.nanoTime();
+        pool.release(this, releasedAt - leasedAt);
+    }
+}
@@ -0,0 +1,77 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class SqlAuthDAO implements AuthDAO {
+
+    private static final String INSERT = "INSERT INTO auth_tokens (token, username) VALUES (?, ?)";
+    private static final String SELECT = "SELECT token, username FROM auth_tokens WHERE token = ?";
+    private static final String DELETE = "DELETE FROM auth_tokens WHERE token = ?";
+    private static final String DELETE_ALL = "DELETE FROM auth_tokens";
+
+    private final ConnectionPool pool;
+
+    public SqlAuthDAO(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(INSERT);
+                statement.setString(1, auth.getAuthToken());
+                statement.setString(2, auth.getUsername());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to create auth token: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(SELECT);
+                statement.setString(1, authToken);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? new AuthData(rs.getString(1), rs.getString(2)) : null;
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to read auth token: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(DELETE);
+                statement.setString(1, authToken);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to delete auth token: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                conn.prepare(DELETE_ALL).executeUpdate();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to clear auth tokens: " + e.getMessage(), e);
+            }
+        }
+    }
+}
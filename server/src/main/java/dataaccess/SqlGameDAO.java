@@ -0,0 +1,171 @@
+package dataaccess;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import model.GameData;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stores each game as one row, the position serialized to JSON and rewritten whole on
+ * each update; see {@link SqlMoveLog} for storing a game as its moves instead
+ */
+public class SqlGameDAO implements GameDAO {
+
+    private static final String INSERT = "INSERT INTO games (white_username, black_username, game_name, game) VALUES (?, ?, ?, ?)";
+    private static final String SELECT = "SELECT id, white_username, black_username, game_name, game FROM games WHERE id = ?";
+    private static final String SELECT_ALL = "SELECT id, white_username, black_username, game_name, game FROM games ORDER BY id";
+    private static final String UPDATE = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, game = ? WHERE id = ?";
+    private static final String DELETE_ALL = "DELETE FROM games";
+
+    private final ConnectionPool pool;
+    private final Gson gson = new Gson();
+
+    public SqlGameDAO(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepareReturningKeys(INSERT);
+                statement.setString(1, null);
+                statement.setString(2, null);
+                statement.setString(3, gameName);
+                statement.setString(4, gson.toJson(new ChessGame()));
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new DataAccessException("No ID generated for game " + gameName);
+                    }
+                    return keys.getInt(1);
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to create game: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(SELECT);
+                statement.setInt(1, gameID);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? readGame(rs) : null;
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to read game: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try (ResultSet rs = conn.prepare(SELECT_ALL).executeQuery()) {
+                List<GameData> games = new ArrayList<>();
+                while (rs.next()) {
+                    games.add(readGame(rs));
+                }
+                return games;
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to list games: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(UPDATE);
+                statement.setString(1, game.getWhiteUsername());
+                statement.setString(2, game.getBlackUsername());
+                statement.setString(3, game.getGameName());
+                statement.setString(4, gson.toJson(game.getGame()));
+                statement.setInt(5, game.getGameID());
+                if (statement.executeUpdate() == 0) {
+                    throw new DataAccessException("No game with ID " + game.getGameID());
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to update game: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes several games in one JDBC batch and one transaction. A game whose row no
+     * longer exists writes nothing and does not hold back the others.
+     *
+     * @return the IDs of the games that do not exist; empty if all were written
+     * @throws DataAccessException if the batch fails, in which case none are written
+     */
+    public List<Integer> updateGames(Collection<GameData> games) throws DataAccessException {
+        List<Integer> missing = new ArrayList<>();
+        if (games.isEmpty()) {
+            return missing;
+        }
+        try (PooledConnection conn = pool.acquire()) {
+            var connection = conn.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                var statement = conn.prepare(UPDATE);
+                for (GameData game : games) {
+                    statement.setString(1, game.getWhiteUsername());
+                    statement.setString(2, game.getBlackUsername());
+                    statement.setString(3, game.getGameName());
+                    statement.setString(4, gson.toJson(game.getGame()));
+                    statement.setInt(5, game.getGameID());
+                    statement.addBatch();
+                }
+                int[] counts;
+                try {
+                    counts = statement.executeBatch();
+                } finally {
+                    // the statement is cached, so nothing of a failed batch may stay on it
+                    statement.clearBatch();
+                }
+                int i = 0;
+                for (GameData game : games) {
+                    // a driver that rewrites the batch reports SUCCESS_NO_INFO instead of counts
+                    if (counts[i++] == 0) {
+                        missing.add(game.getGameID());
+                    }
+                }
+                connection.commit();
+                return missing;
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to update games: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                conn.prepare(DELETE_ALL).executeUpdate();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to clear games: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private GameData readGame(ResultSet rs) throws SQLException {
+        return new GameData(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                gson.fromJson(rs.getString(5), ChessGame.class));
+    }
+}
@@ -0,0 +1,249 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+
+import java.nio.BufferUnderflowException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Arrays;
+
+/**
+ * Stores games as an append-only log of their moves instead of rewriting the whole game
+ * after each one. Making a move appends one row of (game ID, ply, packed move); every
+ * snapshot interval plies the position is also saved, encoded by {@link GameCodec}, so
+ * loading a game decodes its latest snapshot and replays at most an interval of moves.
+ * The log doubles as the game's full history.
+ * <p>
+ * Plies count from 1 for the first move after {@link #start}. Moves are logged without
+ * their generator flags, and replayed through {@link ChessGame#makeMove(ChessMove)}, so
+ * a log that does not fit its game fails to load instead of loading a wrong position.
+ * <p>
+ * This is a building block alongside {@link SqlGameDAO}, which still stores each game's
+ * position whole; the log is not yet what the game DAOs read or write.
+ */
+public class SqlMoveLog {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 32;
+
+    private static final String INSERT_MOVE = "INSERT INTO game_moves (game_id, ply, move) VALUES (?, ?, ?)";
+    private static final String INSERT_SNAPSHOT = "INSERT INTO game_snapshots (game_id, ply, state) VALUES (?, ?, ?)";
+    private static final String SELECT_SNAPSHOT =
+            "SELECT ply, state FROM game_snapshots WHERE game_id = ? ORDER BY ply DESC LIMIT 1";
+    private static final String SELECT_MOVES = "SELECT ply, move FROM game_moves WHERE game_id = ? AND ply > ? ORDER BY ply";
+    private static final String SELECT_LAST_PLY = "SELECT MAX(ply) FROM game_moves WHERE game_id = ?";
+    private static final String DELETE_MOVES = "DELETE FROM game_moves WHERE game_id = ?";
+    private static final String DELETE_SNAPSHOTS = "DELETE FROM game_snapshots WHERE game_id = ?";
+    private static final String DELETE_ALL_MOVES = "DELETE FROM game_moves";
+    private static final String DELETE_ALL_SNAPSHOTS = "DELETE FROM game_snapshots";
+
+    private final ConnectionPool pool;
+    private final int snapshotInterval;
+
+    public SqlMoveLog(ConnectionPool pool) {
+        this(pool, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param snapshotInterval plies between saved positions
+     */
+    public SqlMoveLog(ConnectionPool pool, int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        this.pool = pool;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Begins the game's log at the given position, discarding any earlier log for it
+     */
+    public void start(int gameID, ChessGame game) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            var connection = conn.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                delete(conn, gameID);
+                insertSnapshot(conn, gameID, 0, game);
+                connection.commit();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to start move log: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Logs a move, and the position after it when the ply is due a snapshot
+     *
+     * @param ply   the move's ply, one more than the last one logged
+     * @param after the game once the move is made
+     * @throws DataAccessException if the ply was already logged
+     */
+    public void append(int gameID, int ply, ChessMove move, ChessGame after) throws DataAccessException {
+        int packed = PackedMove.fromChessMove(move);
+        try (PooledConnection conn = pool.acquire()) {
+            var connection = conn.getConnection();
+            try {
+                boolean snapshot = ply % snapshotInterval == 0;
+                if (snapshot) {
+                    connection.setAutoCommit(false);
+                }
+                var statement = conn.prepare(INSERT_MOVE);
+                statement.setInt(1, gameID);
+                statement.setInt(2, ply);
+                statement.setInt(3, packed);
+                statement.executeUpdate();
+                if (snapshot) {
+                    insertSnapshot(conn, gameID, ply, after);
+                    connection.commit();
+                }
+            } catch (SQLIntegrityConstraintViolationException e) {
+                throw new DataAccessException("Ply " + ply + " of game " + gameID + " is already logged", e);
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to log move: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the game from its latest snapshot and the moves logged after it
+     *
+     * @return the game, or null if it has no log
+     * @throws DataAccessException if the log is missing a ply, holds a move that is
+     *                             illegal where it was made, or its snapshot is corrupt
+     */
+    public ChessGame load(int gameID) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var snapshot = conn.prepare(SELECT_SNAPSHOT);
+                snapshot.setInt(1, gameID);
+                int ply;
+                ChessGame game;
+                try (ResultSet rs = snapshot.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    ply = rs.getInt(1);
+                    game = GameCodec.fromBytes(rs.getBytes(2));
+                }
+
+                var moves = conn.prepare(SELECT_MOVES);
+                moves.setInt(1, gameID);
+                moves.setInt(2, ply);
+                try (ResultSet rs = moves.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getInt(1) != ++ply) {
+                            throw new DataAccessException("Move log of game " + gameID + " is missing ply " + ply);
+                        }
+                        game.makeMove(PackedMove.toChessMove(rs.getInt(2)));
+                    }
+                }
+                return game;
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                // a bad or truncated encoding
+                throw new DataAccessException("Snapshot of game " + gameID + " is corrupt: " + e.getMessage(), e);
+            } catch (InvalidMoveException e) {
+                throw new DataAccessException("Move log of game " + gameID + " does not replay: " + e.getMessage(), e);
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to load game: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return every move logged for the game since its start, as flagless
+     * {@link PackedMove}s in ply order
+     */
+    public int[] history(int gameID) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(SELECT_MOVES);
+                statement.setInt(1, gameID);
+                statement.setInt(2, 0);
+                int[] moves = new int[64];
+                int count = 0;
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        if (count == moves.length) {
+                            moves = Arrays.copyOf(moves, count * 2);
+                        }
+                        moves[count++] = rs.getInt(2);
+                    }
+                }
+                return Arrays.copyOf(moves, count);
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to read move history: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the ply of the last move logged for the game, or 0 if none has been
+     */
+    public int lastPly(int gameID) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(SELECT_LAST_PLY);
+                statement.setInt(1, gameID);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to read move log: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public void delete(int gameID) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                delete(conn, gameID);
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to delete move log: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public void clear() throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                conn.prepare(DELETE_ALL_MOVES).executeUpdate();
+                conn.prepare(DELETE_ALL_SNAPSHOTS).executeUpdate();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to clear move logs: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void delete(PooledConnection conn, int gameID) throws SQLException {
+        var moves = conn.prepare(DELETE_MOVES);
+        moves.setInt(1, gameID);
+        moves.executeUpdate();
+        var snapshots = conn.prepare(DELETE_SNAPSHOTS);
+        snapshots.setInt(1, gameID);
+        snapshots.executeUpdate();
+    }
+
+    private static void insertSnapshot(PooledConnection conn, int gameID, int ply, ChessGame game) throws SQLException {
+        var statement = conn.prepare(INSERT_SNAPSHOT);
+        statement.setInt(1, gameID);
+        statement.setInt(2, ply);
+        statement.setBytes(3, GameCodec.toBytes(game));
+        statement.executeUpdate();
+    }
+}
@@ -0,0 +1,76 @@
+package dataaccess;
+
+import model.UserData;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+public class SqlUserDAO implements UserDAO {
+
+    private static final String INSERT = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
+    private static final String SELECT = "SELECT username, password, email FROM users WHERE username = ?";
+    private static final String DELETE_ALL = "DELETE FROM users";
+
+    private final ConnectionPool pool;
+
+    public SqlUserDAO(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        // hashing is slow on purpose, so it is done before taking a connection
+        String hash = BCrypt.hashpw(user.getPassword(), BCrypt.gensalt());
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(INSERT);
+                statement.setString(1, user.getUsername());
+                statement.setString(2, hash);
+                statement.setString(3, user.getEmail());
+                statement.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                throw new DataAccessException("Username already taken: " + user.getUsername(), e);
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to create user: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(SELECT);
+                statement.setString(1, username);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? new UserData(rs.getString(1), rs.getString(2), rs.getString(3)) : null;
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to read user: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean verifyUser(String username, String password) throws DataAccessException {
+        // the connection is back in the pool before the slow check
+        UserData user = getUser(username);
+        return user != null && password != null && BCrypt.checkpw(password, user.getPassword());
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                conn.prepare(DELETE_ALL).executeUpdate();
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to clear users: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package dataaccess;
+
+import model.UserData;
+
+public interface UserDAO {
+
+    /**
+     * Stores a new user, hashing the password
+     *
+     * @throws DataAccessException if the username is taken
+     */
+    void createUser(UserData user) throws DataAccessException;
+
+    /**
+     * @return the user, with the password hashed, or null if there is none by that name
+     */
+    UserData getUser(String username) throws DataAccessException;
+
+    /**
+     * @return whether the user exists and the password matches
+     */
+    boolean verifyUser(String username, String password) throws DataAccessException;
+
+    void clear() throws DataAccessException;
+}
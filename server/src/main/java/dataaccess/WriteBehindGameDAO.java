@@ -0,0 +1,257 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link GameDAO} that takes game updates off the caller's thread. {@link #updateGame}
+ * only records a snapshot of the game as dirty; a background thread writes the dirty
+ * games to the database in batches, so a move costs no database round trip however slow
+ * the database is.
+ * <p>
+ * Updates to the same game between flushes coalesce: only its latest state is written.
+ * A flush runs every flush interval, and as soon as a batch's worth of games are dirty.
+ * Between them, at most one interval's worth of updates can be lost if the process dies;
+ * {@link #close()} flushes everything still dirty before returning.
+ * <p>
+ * Reads see pending updates, so callers never observe a game going back in time. A
+ * flush that fails, say while the database is down, leaves its games dirty to be retried
+ * by the next one. Once four batches of games are dirty, an update to a game that is
+ * not already dirty first flushes on the caller's thread, and is refused with the
+ * flush's exception if that fails, so the backlog stays bounded. A game whose row no
+ * longer exists is dropped from the backlog and counted as a failure rather than
+ * retried.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final SqlGameDAO delegate;
+    private final int batchSize;
+    private final int maxPending;
+    private final ScheduledExecutorService flusher;
+
+    private final Map<Integer, GameData> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private volatile boolean closed;
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile DataAccessException lastFailure;
+
+    public WriteBehindGameDAO(SqlGameDAO delegate) {
+        this(delegate, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param flushIntervalMillis longest a dirty game waits to be written
+     * @param batchSize           dirty games that trigger a flush without waiting
+     */
+    public WriteBehindGameDAO(SqlGameDAO delegate, long flushIntervalMillis, int batchSize) {
+        if (flushIntervalMillis < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Flush interval and batch size must be positive");
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.maxPending = batchSize * 4;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        return delegate.createGame(gameName);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData pending = dirty.get(gameID);
+        return pending != null ? copy(pending) : delegate.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        List<GameData> games = new ArrayList<>();
+        for (GameData game : delegate.listGames()) {
+            GameData pending = dirty.get(game.getGameID());
+            games.add(pending != null ? copy(pending) : game);
+        }
+        return games;
+    }
+
+    /**
+     * Marks the game dirty and returns without touching the database. The game is copied,
+     * so the caller may go on changing it.
+     * <p>
+     * Unlike a direct update, a game that does not exist is not reported to the caller;
+     * it is dropped when its batch is written, see {@link #getFailures()}.
+     *
+     * @throws DataAccessException if the backlog is full and cannot be flushed
+     */
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("Game store is closed");
+        }
+        if (dirty.size() >= maxPending && !dirty.containsKey(game.getGameID())) {
+            flush();
+        }
+        dirty.put(game.getGameID(), copy(game));
+        updates.increment();
+        if (dirty.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Drops pending updates along with the stored games
+     */
+    @Override
+    public void clear() throws DataAccessException {
+        synchronized (flushLock) {
+            dirty.clear();
+            delegate.clear();
+        }
+    }
+
+    /**
+     * Writes every game dirty right now, in batches of the batch size
+     */
+    public void flush() throws DataAccessException {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            List<GameData> batch = new ArrayList<>(Math.min(batchSize, dirty.size()));
+            for (GameData game : dirty.values()) {
+                batch.add(game);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                }
+            }
+            write(batch);
+        }
+    }
+
+    private void write(List<GameData> batch) throws DataAccessException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Integer> missing;
+        try {
+            missing = delegate.updateGames(batch);
+        } catch (DataAccessException e) {
+            failures.increment();
+            lastFailure = e;
+            throw e;
+        }
+        if (!missing.isEmpty()) {
+            failures.add(missing.size());
+            lastFailure = new DataAccessException("Dropped updates to games that do not exist: " + missing);
+        }
+        flushes.increment();
+        written.add(batch.size() - missing.size());
+        for (GameData game : batch) {
+            // a game updated again during the write stays dirty with its newer state;
+            // compared by identity, since GameData equality ignores the position
+            dirty.computeIfPresent(game.getGameID(), (id, pending) -> pending == game ? null : pending);
+        }
+        batch.clear();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            // counted in write(); the games stay dirty and the next flush retries them
+        }
+    }
+
+    private static GameData copy(GameData game) {
+        return new GameData(game.getGameID(), game.getWhiteUsername(), game.getBlackUsername(), game.getGameName(),
+                new ChessGame(game.getGame()));
+    }
+
+    /**
+     * @return games with updates not yet written
+     */
+    public int getPending() {
+        return dirty.size();
+    }
+
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    /**
+     * @return batches written
+     */
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * @return rows written; updates minus this is how many were coalesced away, once
+     * nothing is pending
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * @return failed batches plus games dropped because they no longer exist
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the error from the most recent failed batch or dropped game, or null if
+     * nothing has failed
+     */
+    public DataAccessException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops the background flushes and writes everything still dirty
+     *
+     * @throws DataAccessException if the final flush fails; the unwritten games are lost
+     */
+    @Override
+    public void close() throws DataAccessException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WriteBehindGameDAO{pending=%d, updates=%,d, written=%,d, flushes=%,d, failures=%,d}",
+                getPending(), getUpdates(), getWritten(), getFlushes(), getFailures());
+    }
+}
@@ -0,0 +1,72 @@
+package server;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how many requests the wrapped handler works on at once. A request over the
+ * limit waits for a slot, up to a timeout, and is then turned away with 503.
+ * <p>
+ * With a platform thread pool the pool size is the limit. Virtual threads take that
+ * limit away, so this puts a deliberate one back in front of the database and other
+ * shared resources.
+ */
+public class ConcurrencyLimitHandler extends HandlerWrapper {
+
+    private final Semaphore permits;
+    private final int limit;
+    private final long timeoutMillis;
+
+    /**
+     * @param limit         most requests handled at once
+     * @param timeoutMillis longest a request waits for a slot
+     */
+    public ConcurrencyLimitHandler(int limit, long timeoutMillis) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + limit);
+        }
+        this.permits = new Semaphore(limit);
+        this.limit = limit;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            baseRequest.setHandled(true);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy");
+            return;
+        }
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return requests being handled now
+     */
+    public int getActive() {
+        return limit - permits.availablePermits();
+    }
+}
@@ -0,0 +1,237 @@
+package server;
+
+import dataaccess.ConnectionPool;
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
+import dataaccess.PooledConnection;
+import spark.Spark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the server's thread modes under load: the same route, which blocks the way a
+ * database call does, is driven by many concurrent clients against each mode in turn,
+ * and the throughput and latency percentiles are printed side by side. Both modes run with
+ * the same concurrency limit, so the comparison is of the threading model alone.
+ * <p>
+ * In the {@link Scenario#SLEEP} scenario the route just sleeps. In {@link Scenario#JDBC} it
+ * blocks inside the MySQL driver instead, on a {@code SELECT SLEEP} over a connection from
+ * {@link DatabaseManager#getPool()}, so it needs the server in db.properties. A driver that
+ * blocks while holding a monitor pins the virtual thread to its carrier, which caps virtual
+ * mode at one database call per core; add {@code -Djdk.tracePinnedThreads=short} to see
+ * where.
+ * <p>
+ * Run from the packaged server with
+ * <pre>
+ *   java -cp server/target/server-jar-with-dependencies.jar server.LoadHarness [clients] [blockMillis] [seconds] [limit] [sleep|jdbc]
+ * </pre>
+ */
+public class LoadHarness {
+
+    public enum Scenario {
+        SLEEP,
+        JDBC
+    }
+
+    private static final String SLEEP_QUERY = "SELECT SLEEP(?)";
+
+    private final int clients;
+    private final int blockMillis;
+    private final int seconds;
+    private final Scenario scenario;
+
+    public LoadHarness(int clients, int blockMillis, int seconds) {
+        this(clients, blockMillis, seconds, Scenario.SLEEP);
+    }
+
+    /**
+     * @param scenario how each request blocks for blockMillis
+     */
+    public LoadHarness(int clients, int blockMillis, int seconds, Scenario scenario) {
+        this.clients = clients;
+        this.blockMillis = blockMillis;
+        this.seconds = seconds;
+        this.scenario = scenario;
+    }
+
+    /**
+     * What one mode did under load
+     */
+    public static final class Result {
+
+        private final Server.ThreadMode mode;
+        private final long requests;
+        private final long errors;
+        private final double seconds;
+        private final long[] latenciesNanos;
+
+        Result(Server.ThreadMode mode, long requests, long errors, double seconds, long[] latenciesNanos) {
+            this.mode = mode;
+            this.requests = requests;
+            this.errors = errors;
+            this.seconds = seconds;
+            this.latenciesNanos = latenciesNanos;
+            Arrays.sort(this.latenciesNanos);
+        }
+
+        public double getRequestsPerSecond() {
+            return requests / seconds;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @param percentile e.g. 99 for p99
+         */
+        public double getLatencyMillis(double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, Math.min(index, latenciesNanos.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %10.0f %9.1f %9.1f %9.1f %8d", mode.name().toLowerCase(),
+                    getRequestsPerSecond(), getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(100), errors);
+        }
+    }
+
+    /**
+     * Starts the server in the given mode, drives it for the configured time and stops it
+     */
+    public Result measure(Server.ThreadMode mode, int maxConcurrency) throws InterruptedException, DataAccessException {
+        ConnectionPool pool = scenario == Scenario.JDBC ? DatabaseManager.getPool() : null;
+        Server server = new Server(mode, maxConcurrency) {
+            @Override
+            protected void createRoutes() {
+                Spark.get("/load", (req, res) -> {
+                    if (pool == null) {
+                        Thread.sleep(blockMillis);
+                    } else {
+                        sleepInDatabase(pool);
+                    }
+                    return "ok";
+                });
+                super.createRoutes();
+            }
+        };
+        int port = server.run(0);
+        try {
+            URI uri = URI.create("http://localhost:" + port + "/load");
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+            // a short warm-up so the JIT and connection pool settle before timing
+            drive(client, request, Math.min(2, seconds), new ArrayList<>(), new AtomicLong());
+
+            List<long[]> samples = new ArrayList<>();
+            AtomicLong errors = new AtomicLong();
+            long start = System.nanoTime();
+            drive(client, request, seconds, samples, errors);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            int total = samples.stream().mapToInt(s -> (int) s[0]).sum();
+            long[] latencies = new long[total];
+            int at = 0;
+            for (long[] sample : samples) {
+                System.arraycopy(sample, 1, latencies, at, (int) sample[0]);
+                at += (int) sample[0];
+            }
+            return new Result(mode, total, errors.get(), elapsed, latencies);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void sleepInDatabase(ConnectionPool pool) throws DataAccessException {
+        try (PooledConnection conn = pool.acquire()) {
+            try {
+                var statement = conn.prepare(SLEEP_QUERY);
+                statement.setDouble(1, blockMillis / 1000.0);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                }
+            } catch (SQLException e) {
+                conn.markBrokenIf(e);
+                throw new DataAccessException("Unable to sleep in the database: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Runs the clients in a closed loop, each sending its next request as soon as the last
+     * one is answered
+     *
+     * @param samples receives one array per client: its count, then its latencies
+     */
+    private void drive(HttpClient client, HttpRequest request, int seconds, List<long[]> samples, AtomicLong errors)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                clientThreads.execute(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (++count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count] = System.nanoTime() - sent;
+                    }
+                    latencies[0] = count;
+                    synchronized (samples) {
+                        samples.add(latencies);
+                    }
+                });
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, DataAccessException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int blockMillis = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int limit = args.length > 3 ? Integer.parseInt(args[3]) : Server.DEFAULT_MAX_CONCURRENCY;
+        var scenario = args.length > 4 ? Scenario.valueOf(args[4].toUpperCase()) : Scenario.SLEEP;
+        LoadHarness harness = new LoadHarness(clients, blockMillis, seconds, scenario);
+
+        System.out.printf("%d clients, %d ms blocking per request in %s, %d s per mode, limit %d%n",
+                clients, blockMillis, scenario == Scenario.JDBC ? "the database" : "a sleep", seconds, limit);
+        Result platform = harness.measure(Server.ThreadMode.PLATFORM, limit);
+        Result virtual = harness.measure(Server.ThreadMode.VIRTUAL, limit);
+        System.out.printf("%-8s %10s %9s %9s %9s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        System.out.println(platform);
+        System.out.println(virtual);
+    }
+}
@@ -0,0 +1,234 @@
+package server;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebase;
+import com.google.gson.Gson;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import service.AnalysisCache;
+import service.AnalysisService;
+import service.PositionAnalysis;
+import spark.Request;
+import spark.Response;
+import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The chess HTTP and websocket server, on Spark's embedded Jetty.
+ * <p>
+ * In {@link ThreadMode#PLATFORM} mode requests run on a pool of platform threads, and
+ * the concurrency limit is the pool's size. In {@link ThreadMode#VIRTUAL} mode every
+ * route and websocket message runs on its own virtual thread, from a
+ * {@link VirtualThreadPool}, and a {@link ConcurrencyLimitHandler} keeps the limit.
+ * Spark holds one server per process, so only one instance runs at a time.
+ */
+public class Server {
+
+    public enum ThreadMode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 200;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30_000;
+
+    // platform threads Jetty keeps for accepting and selecting, on top of the handlers
+    private static final int JETTY_INTERNAL_THREADS = 8;
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private final ThreadMode mode;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+    private final Gson gson = new Gson();
+    private Path bookFile;
+    private OpeningBook book;
+    private Path tablebaseDirectory;
+    private Tablebase tablebase;
+    private AnalysisService analysis;
+
+    public Server() {
+        this(ThreadMode.PLATFORM, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * @param maxConcurrency most requests handled at once
+     */
+    public Server(ThreadMode mode, int maxConcurrency) {
+        this(mode, maxConcurrency, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param acquireTimeoutMillis in virtual mode, longest a request waits for a slot
+     *                             before it is refused with 503
+     */
+    public Server(ThreadMode mode, int maxConcurrency, long acquireTimeoutMillis) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrency);
+        }
+        this.mode = mode;
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Has /analysis answer from an opening book while the position is in it. Takes effect
+     * at the next {@link #run(int)}.
+     *
+     * @param bookFile written by {@link chess.book.OpeningBookBuilder}, or null for none
+     */
+    public void setBookFile(Path bookFile) {
+        this.bookFile = bookFile;
+    }
+
+    public Path getBookFile() {
+        return bookFile;
+    }
+
+    /**
+     * Has /analysis answer endings from endgame tables, and score the endings its searches
+     * reach. Takes effect at the next {@link #run(int)}.
+     *
+     * @param tablebaseDirectory holding the tables {@link chess.tablebase.TablebaseGenerator}
+     *                           wrote, or null for none
+     */
+    public void setTablebaseDirectory(Path tablebaseDirectory) {
+        this.tablebaseDirectory = tablebaseDirectory;
+    }
+
+    public Path getTablebaseDirectory() {
+        return tablebaseDirectory;
+    }
+
+    /**
+     * Starts the server and waits until it is listening
+     *
+     * @param desiredPort 0 for any free port
+     * @return the port it listens on
+     * @throws UncheckedIOException if the opening book or the tablebase cannot be opened
+     */
+    public int run(int desiredPort) {
+        try {
+            book = bookFile == null ? null : OpeningBook.open(bookFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open opening book " + bookFile, e);
+        }
+        try {
+            tablebase = tablebaseDirectory == null ? null : Tablebase.open(tablebaseDirectory);
+        } catch (IOException e) {
+            close(book);
+            throw new UncheckedIOException("Cannot open tablebase in " + tablebaseDirectory, e);
+        }
+
+        ThreadPool pool = mode == ThreadMode.VIRTUAL ? new VirtualThreadPool()
+                : new QueuedThreadPool(maxConcurrency + JETTY_INTERNAL_THREADS, JETTY_INTERNAL_THREADS,
+                IDLE_TIMEOUT_MILLIS);
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory(new LimitedServerFactory()).withThreadPool(pool));
+
+        Spark.port(desiredPort);
+        // searches are CPU bound: past the core count, more engines only add memory
+        analysis = new AnalysisService(new AnalysisCache(AnalysisService.DEFAULT_CAPACITY),
+                AnalysisService.DEFAULT_LIMITS, book, tablebase, Math.min(maxConcurrency, AnalysisService.DEFAULT_ENGINES));
+        createRoutes();
+        Spark.init();
+        Spark.awaitInitialization();
+        return Spark.port();
+    }
+
+    public void stop() {
+        Spark.stop();
+        Spark.awaitStop();
+        if (analysis != null) {
+            analysis.close();
+        }
+        close(book);
+        close(tablebase);
+        book = null;
+        tablebase = null;
+    }
+
+    public ThreadMode getMode() {
+        return mode;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Registers the routes; subclasses may add their own before calling this
+     */
+    protected void createRoutes() {
+        Spark.get("/analysis", this::analyze);
+    }
+
+    private static void close(AutoCloseable file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (Exception e) {
+            // only the channel is closed; the mapping goes with the garbage collector either way
+        }
+    }
+
+    private Object analyze(Request req, Response res) {
+        String fen = req.queryParams("fen");
+        ChessGame game;
+        try {
+            game = fen == null ? new ChessGame() : ChessGame.fromFen(fen);
+        } catch (IllegalArgumentException e) {
+            res.status(400);
+            res.type("application/json");
+            return gson.toJson(Map.of("message", "Error: " + e.getMessage()));
+        }
+        PositionAnalysis result = analysis.analyze(game);
+        int best = result.getPackedBestMove();
+        res.type("application/json");
+        return gson.toJson(Map.of(
+                "legalMoves", result.getLegalMoves().length,
+                "inCheck", result.isInCheck(),
+                "checkmate", result.isCheckmate(),
+                "stalemate", result.isStalemate(),
+                "score", result.getScore(),
+                "bestMove", best == PackedMove.NONE ? "" : PackedMove.toChessMove(best).toString()));
+    }
+
+    /**
+     * Builds Jetty servers that, in virtual mode, put the concurrency limit in front of
+     * whatever handler Spark installs
+     */
+    private final class LimitedServerFactory implements JettyServerFactory {
+
+        @Override
+        public org.eclipse.jetty.server.Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+            return create(new QueuedThreadPool(maxThreads, minThreads, threadTimeoutMillis));
+        }
+
+        @Override
+        public org.eclipse.jetty.server.Server create(ThreadPool threadPool) {
+            if (mode == ThreadMode.PLATFORM) {
+                return new org.eclipse.jetty.server.Server(threadPool);
+            }
+            return new org.eclipse.jetty.server.Server(threadPool) {
+                @Override
+                public void setHandler(Handler handler) {
+                    ConcurrencyLimitHandler limiter = new ConcurrencyLimitHandler(maxConcurrency, acquireTimeoutMillis);
+                    limiter.setHandler(handler);
+                    super.setHandler(limiter);
+                }
+            };
+        }
+    }
+}
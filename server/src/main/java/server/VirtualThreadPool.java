@@ -0,0 +1,85 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty thread pool that runs every job on a new virtual thread.
+ * <p>
+ * Jetty hands its pool everything it runs: accepting connections, selecting, and each
+ * HTTP request and websocket message. Here each gets a virtual thread, so a handler
+ * blocked on the database or on BCrypt parks cheaply instead of holding one of a few
+ * hundred platform threads. The pool has no size limit of its own; the number of
+ * requests handled at once is bounded by {@link ConcurrencyLimitHandler}.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, TryExecutor {
+
+    private static final long STOP_TIMEOUT_MILLIS = 5_000;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private ExecutorService executor;
+
+    @Override
+    protected void doStart() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jetty-virtual-", 0).factory());
+    }
+
+    @Override
+    protected void doStop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        running.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                job.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Always succeeds: a virtual thread is always free, so Jetty never has to run a job
+     * on the thread that found it
+     */
+    @Override
+    public boolean tryExecute(Runnable job) {
+        execute(job);
+        return true;
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return jobs running now
+     */
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
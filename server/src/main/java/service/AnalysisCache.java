@@ -0,0 +1,378 @@
+package service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link PositionAnalysis} results keyed by a position's Zobrist key,
+ * evicting the least recently used position once full.
+ * <p>
+ * Entries live in parallel primitive arrays rather than as map nodes: a slot's key,
+ * packed verdict and move list sit at the same index, an open-addressed table of slot
+ * numbers finds the slot for a key, and two int arrays thread the slots into a recency
+ * list. The only per-entry object is the move array, and an evicted slot's array is
+ * reused when the new list fits in it, so a full cache stores new positions without
+ * allocating; only the copies handed out by {@link #get(long)} are new objects.
+ * <p>
+ * The cache is split into independently locked segments chosen by the key's high bits,
+ * so request threads looking up different positions rarely wait on each other. Recency
+ * is tracked per segment, which makes eviction approximately, not strictly, global LRU.
+ */
+public class AnalysisCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    // verdict word: bits 0-18 best move, 19-34 score, 35-42 depth, bit 43 in check,
+    // bit 44 set once the engine's verdict is in
+    private static final long MOVE_MASK = (1L << 19) - 1;
+    private static final long IN_CHECK = 1L << 43;
+    private static final long SCORED = 1L << 44;
+
+    private static final int[] NO_MOVES = new int[0];
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int capacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity most positions held at once
+     */
+    public AnalysisCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        // keep segments at least a few dozen entries deep so LRU order still means something
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / 32)));
+        int perSegment = (capacity + count - 1) / count;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+        this.capacity = perSegment * count;
+    }
+
+    /**
+     * @return the cached analysis of the position, or null if it is not held
+     */
+    public PositionAnalysis get(long key) {
+        PositionAnalysis analysis = segmentFor(key).get(key);
+        if (analysis == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return analysis;
+    }
+
+    /**
+     * Stores the analysis of a position, replacing any held for the same key and evicting
+     * the least recently used position if the cache is full
+     */
+    public void put(long key, PositionAnalysis analysis) {
+        if (segmentFor(key).put(key, analysis)) {
+            evictions.increment();
+        }
+    }
+
+    public boolean remove(long key) {
+        return segmentFor(key).remove(key);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return positions currently held
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return most positions held at once, rounded up to fill every segment equally
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return fraction of lookups that found their position, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d/%,d positions, %,d hits, %,d misses (%.1f%%), %,d evictions",
+                size(), capacity, getHits(), getMisses(), getHitRate() * 100, getEvictions());
+    }
+
+    private Segment segmentFor(long key) {
+        return segments.length == 1 ? segments[0] : segments[(int) (key >>> segmentShift)];
+    }
+
+    private static long pack(PositionAnalysis analysis) {
+        return (analysis.getPackedBestMove() & MOVE_MASK)
+                | ((long) (analysis.getScore() & 0xFFFF) << 19)
+                | ((long) Math.min(analysis.getDepth(), 255) << 35)
+                | (analysis.isInCheck() ? IN_CHECK : 0)
+                | (analysis.isScored() ? SCORED : 0);
+    }
+
+    private static PositionAnalysis unpack(long verdict, int[] moves, int moveCount) {
+        int[] legalMoves = moveCount == 0 ? NO_MOVES : Arrays.copyOf(moves, moveCount);
+        return new PositionAnalysis(legalMoves, (verdict & IN_CHECK) != 0,
+                (short) (verdict >>> 19), (int) ((verdict >>> 35) & 0xFF), (int) (verdict & MOVE_MASK),
+                (verdict & SCORED) != 0);
+    }
+
+    /**
+     * One independently locked part of the cache
+     */
+    private static final class Segment {
+
+        private static final int NONE = -1;
+
+        private final long[] keys;
+        private final long[] verdicts;
+        private final int[][] moves;
+        private final int[] moveCounts;
+        // recency list through slot numbers: head is the most recently used
+        private final int[] newer;
+        private final int[] older;
+        // open-addressed index holding slot + 1, 0 for empty
+        private final int[] index;
+        private final int indexMask;
+
+        private int size;
+        private int head = NONE;
+        private int tail = NONE;
+
+        Segment(int capacity) {
+            this.keys = new long[capacity];
+            this.verdicts = new long[capacity];
+            this.moves = new int[capacity][];
+            this.moveCounts = new int[capacity];
+            this.newer = new int[capacity];
+            this.older = new int[capacity];
+            // at most half full, so probe runs stay short
+            int indexSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+            this.index = new int[indexSize];
+            this.indexMask = indexSize - 1;
+        }
+
+        synchronized PositionAnalysis get(long key) {
+            int slot = find(key);
+            if (slot == NONE) {
+                return null;
+            }
+            touch(slot);
+            return unpack(verdicts[slot], moves[slot], moveCounts[slot]);
+        }
+
+        /**
+         * @return whether another position was evicted to make room
+         */
+        synchronized boolean put(long key, PositionAnalysis analysis) {
+            boolean evicted = false;
+            int slot = find(key);
+            if (slot != NONE) {
+                touch(slot);
+            } else {
+                if (size < keys.length) {
+                    slot = size++;
+                } else {
+                    slot = tail;
+                    unlink(slot);
+                    unindex(slot);
+                    evicted = true;
+                }
+                keys[slot] = key;
+                indexSlot(slot);
+                linkFirst(slot);
+            }
+            int[] legalMoves = analysis.getLegalMoves();
+            int[] stored = moves[slot];
+            if (stored == null || stored.length < legalMoves.length) {
+                stored = new int[legalMoves.length];
+                moves[slot] = stored;
+            }
+            System.arraycopy(legalMoves, 0, stored, 0, legalMoves.length);
+            moveCounts[slot] = legalMoves.length;
+            verdicts[slot] = pack(analysis);
+            return evicted;
+        }
+
+        synchronized boolean remove(long key) {
+            int slot = find(key);
+            if (slot == NONE) {
+                return false;
+            }
+            unlink(slot);
+            unindex(slot);
+            // keep slots dense by moving the last one into the hole
+            int last = --size;
+            if (slot != last) {
+                relocate(last, slot);
+            }
+            moves[last] = null;
+            return true;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(index, 0);
+            Arrays.fill(moves, null);
+            size = 0;
+            head = NONE;
+            tail = NONE;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int home(long key) {
+            // the key is already uniformly random; the segment was picked with its high bits
+            return (int) key & indexMask;
+        }
+
+        private int find(long key) {
+            for (int i = home(key); ; i = (i + 1) & indexMask) {
+                int entry = index[i];
+                if (entry == 0) {
+                    return NONE;
+                }
+                if (keys[entry - 1] == key) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        private int position(int slot) {
+            for (int i = home(keys[slot]); ; i = (i + 1) & indexMask) {
+                if (index[i] == slot + 1) {
+                    return i;
+                }
+            }
+        }
+
+        private void indexSlot(int slot) {
+            int i = home(keys[slot]);
+            while (index[i] != 0) {
+                i = (i + 1) & indexMask;
+            }
+            index[i] = slot + 1;
+        }
+
+        /**
+         * Clears the slot's index entry, shifting later entries of the same probe run back
+         * so no lookup stops short at the hole
+         */
+        private void unindex(int slot) {
+            int hole = position(slot);
+            for (int i = (hole + 1) & indexMask; index[i] != 0; i = (i + 1) & indexMask) {
+                int home = home(keys[index[i] - 1]);
+                // move the entry unless its home lies cyclically in (hole, i]
+                boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+                if (!stays) {
+                    index[hole] = index[i];
+                    hole = i;
+                }
+            }
+            index[hole] = 0;
+        }
+
+        /**
+         * Moves the entry in slot {@code from} to the free slot {@code to}
+         */
+        private void relocate(int from, int to) {
+            int position = position(from);
+            keys[to] = keys[from];
+            verdicts[to] = verdicts[from];
+            moves[to] = moves[from];
+            moveCounts[to] = moveCounts[from];
+            index[position] = to + 1;
+
+            int n = newer[from];
+            int o = older[from];
+            newer[to] = n;
+            older[to] = o;
+            if (n == NONE) {
+                head = to;
+            } else {
+                older[n] = to;
+            }
+            if (o == NONE) {
+                tail = to;
+            } else {
+                newer[o] = to;
+            }
+        }
+
+        private void touch(int slot) {
+            if (slot != head) {
+                unlink(slot);
+                linkFirst(slot);
+            }
+        }
+
+        private void linkFirst(int slot) {
+            newer[slot] = NONE;
+            older[slot] = head;
+            if (head == NONE) {
+                tail = slot;
+            } else {
+                newer[head] = slot;
+            }
+            head = slot;
+        }
+
+        private void unlink(int slot) {
+            int n = newer[slot];
+            int o = older[slot];
+            if (n == NONE) {
+                head = o;
+            } else {
+                older[n] = o;
+            }
+            if (o == NONE) {
+                tail = n;
+            } else {
+                newer[o] = n;
+            }
+        }
+    }
+}
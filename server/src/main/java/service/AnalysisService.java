@@ -0,0 +1,280 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.book.OpeningBook;
+import chess.engine.Engine;
+import chess.engine.Limits;
+import chess.engine.SearchResult;
+import chess.tablebase.Tablebase;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers position questions for the server (legal moves, check, mate, the engine's
+ * opinion) from an {@link AnalysisCache}, working a position out only the first time it
+ * is asked about.
+ * <p>
+ * Positions are keyed by {@link ChessGame#getZobristKey()}, which covers the pieces, side
+ * to move, castling rights and en passant square; anything that changes the legal moves
+ * changes the key. Questions about moves and check cost one move generation the first
+ * time and a lookup after; only {@link #analyze} asks for the engine's verdict, which is
+ * then added to the same entry.
+ * <p>
+ * Searches use small engines borrowed from a bounded pool, so concurrent searches never
+ * share an engine, and an engine's table stays warm from one search to the next whichever
+ * thread ran it; with every engine busy, a search waits for one. Engines are made as they
+ * are first needed. Given an {@link OpeningBook}, positions still in book take the book's
+ * move instead of a search, and given a {@link Tablebase}, endings it covers get their
+ * exact result and the move that keeps it, and searches score the endings they reach
+ * from it.
+ */
+public class AnalysisService implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 65_536;
+    public static final Limits DEFAULT_LIMITS = Limits.depth(4).withNodes(50_000);
+
+    /**
+     * Most engines searching at once, unless told otherwise; searches are CPU bound, so
+     * more engines than cores would only split them more finely
+     */
+    public static final int DEFAULT_ENGINES = Runtime.getRuntime().availableProcessors();
+
+    private static final int ENGINE_TABLE_MEGABYTES = 4;
+
+    private final AnalysisCache cache;
+    private final Limits limits;
+    private final OpeningBook book;
+    private final Tablebase tablebase;
+    private final int maxEngines;
+    private final BlockingQueue<Engine> idleEngines;
+    private final AtomicInteger enginesCreated = new AtomicInteger();
+    private volatile boolean closed;
+
+    public AnalysisService() {
+        this(new AnalysisCache(DEFAULT_CAPACITY), DEFAULT_LIMITS);
+    }
+
+    /**
+     * @param limits how hard the engine looks at a position it has not seen before
+     */
+    public AnalysisService(AnalysisCache cache, Limits limits) {
+        this(cache, limits, null);
+    }
+
+    /**
+     * @param book consulted before searching, or null for none
+     */
+    public AnalysisService(AnalysisCache cache, Limits limits, OpeningBook book) {
+        this(cache, limits, book, null);
+    }
+
+    /**
+     * @param book      consulted before searching, or null for none
+     * @param tablebase consulted before searching, or null for none
+     */
+    public AnalysisService(AnalysisCache cache, Limits limits, OpeningBook book, Tablebase tablebase) {
+        this(cache, limits, book, tablebase, DEFAULT_ENGINES);
+    }
+
+    /**
+     * @param book       consulted before searching, or null for none
+     * @param tablebase  consulted before searching, or null for none
+     * @param maxEngines most searches run at once, each with its own engine
+     */
+    public AnalysisService(AnalysisCache cache, Limits limits, OpeningBook book, Tablebase tablebase, int maxEngines) {
+        if (maxEngines < 1) {
+            throw new IllegalArgumentException("Engine count must be positive: " + maxEngines);
+        }
+        this.maxEngines = maxEngines;
+        this.idleEngines = new ArrayBlockingQueue<>(maxEngines);
+        this.cache = cache;
+        this.limits = limits;
+        this.book = book;
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * @return the analysis of the game's current position with the engine's verdict, from
+     * the cache if it is held; searches only if no one has asked for the verdict before
+     */
+    public PositionAnalysis analyze(ChessGame game) {
+        long key = game.getZobristKey();
+        PositionAnalysis analysis = cache.get(key);
+        if (analysis == null || !analysis.isScored()) {
+            analysis = score(game, analysis != null ? analysis : legal(game));
+            cache.put(key, analysis);
+        }
+        return analysis;
+    }
+
+    /**
+     * @return the moves and check state of the game's current position, from the cache if
+     * held; never searches, so answering these costs a move generation at most
+     */
+    private PositionAnalysis moves(ChessGame game) {
+        long key = game.getZobristKey();
+        PositionAnalysis analysis = cache.get(key);
+        if (analysis == null) {
+            analysis = legal(game);
+            cache.put(key, analysis);
+        }
+        return analysis;
+    }
+
+    /**
+     * Same answer as {@link ChessGame#validMoves(ChessPosition)}
+     */
+    public Collection<ChessMove> validMoves(ChessGame game, ChessPosition startPosition) {
+        ChessPiece piece = game.getBoard().getPiece(startPosition);
+        if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+            // only the side to move is analysed; the other side is rarely asked about
+            return game.validMoves(startPosition);
+        }
+        return moves(game).validMoves(startPosition);
+    }
+
+    /**
+     * Same answer as {@link ChessGame#isInCheck(ChessGame.TeamColor)}
+     */
+    public boolean isInCheck(ChessGame game, ChessGame.TeamColor team) {
+        return team == game.getTeamTurn() ? moves(game).isInCheck() : game.isInCheck(team);
+    }
+
+    /**
+     * Same answer as {@link ChessGame#isInCheckmate(ChessGame.TeamColor)}
+     */
+    public boolean isInCheckmate(ChessGame game, ChessGame.TeamColor team) {
+        return team == game.getTeamTurn() ? moves(game).isCheckmate() : game.isInCheckmate(team);
+    }
+
+    /**
+     * Same answer as {@link ChessGame#isInStalemate(ChessGame.TeamColor)}
+     */
+    public boolean isInStalemate(ChessGame game, ChessGame.TeamColor team) {
+        return team == game.getTeamTurn() ? moves(game).isStalemate() : game.isInStalemate(team);
+    }
+
+    public AnalysisCache getCache() {
+        return cache;
+    }
+
+    public int getMaxEngines() {
+        return maxEngines;
+    }
+
+    /**
+     * @return engines made so far, busy or idle
+     */
+    public int getEnginesCreated() {
+        return enginesCreated.get();
+    }
+
+    /**
+     * Frees the idle engines now and busy ones as their searches finish
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Engine engine;
+        while ((engine = idleEngines.poll()) != null) {
+            engine.close();
+        }
+    }
+
+    /**
+     * @return the legal moves and check state, scored only when the game is over and the
+     * score needs no search
+     */
+    private static PositionAnalysis legal(ChessGame game) {
+        MoveList moves = new MoveList();
+        int count = game.legalMoves(moves);
+        int[] legalMoves = Arrays.copyOf(moves.buffer(), count);
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        if (count == 0) {
+            return new PositionAnalysis(legalMoves, inCheck, inCheck ? -Engine.MATE : 0, 0, 0);
+        }
+        return new PositionAnalysis(legalMoves, inCheck);
+    }
+
+    /**
+     * Adds the verdict to an analysis of the moves, from the book, the tablebase or a search
+     */
+    private PositionAnalysis score(ChessGame game, PositionAnalysis moves) {
+        if (moves.isScored()) {
+            return moves;
+        }
+        int[] legalMoves = moves.getLegalMoves();
+        boolean inCheck = moves.isInCheck();
+        int bookMove = book == null ? PackedMove.NONE : book.bestMove(game);
+        if (bookMove != PackedMove.NONE && contains(legalMoves, bookMove)) {
+            return new PositionAnalysis(legalMoves, inCheck, game.evaluate(), 0, bookMove);
+        }
+        int value = tablebase == null ? Tablebase.NOT_FOUND : tablebase.probe(game);
+        if (value != Tablebase.NOT_FOUND) {
+            return new PositionAnalysis(legalMoves, inCheck, Tablebase.toScore(value),
+                    Tablebase.pliesToMate(value), tablebase.bestMove(new ChessGame(game)));
+        }
+        Engine engine = acquireEngine();
+        SearchResult result;
+        try {
+            result = engine.search(new ChessGame(game), limits);
+        } finally {
+            releaseEngine(engine);
+        }
+        return new PositionAnalysis(legalMoves, inCheck, result.getScore(), result.getDepth(),
+                result.getPackedBestMove());
+    }
+
+    private Engine acquireEngine() {
+        if (closed) {
+            throw new IllegalStateException("Analysis service is closed");
+        }
+        Engine engine = idleEngines.poll();
+        if (engine != null) {
+            return engine;
+        }
+        int created;
+        while ((created = enginesCreated.get()) < maxEngines) {
+            if (enginesCreated.compareAndSet(created, created + 1)) {
+                engine = new Engine(ENGINE_TABLE_MEGABYTES);
+                engine.setTablebase(tablebase);
+                return engine;
+            }
+        }
+        try {
+            return idleEngines.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for an engine", e);
+        }
+    }
+
+    private void releaseEngine(Engine engine) {
+        idleEngines.offer(engine);
+        if (closed) {
+            // close() may have drained the queue before this engine got back
+            close();
+        }
+    }
+
+    /**
+     * Guards against the rare book entry whose key collides with another position's
+     */
+    private static boolean contains(int[] moves, int move) {
+        for (int legal : moves) {
+            if (legal == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Sole owner of one live {@link ChessGame}. Every read and move is a task on the actor's
+ * queue, and the tasks run one at a time in submission order, so the game itself needs
+ * no locking and is never seen half-updated.
+ * <p>
+ * The actor has no thread of its own. Submitting to an idle actor schedules a drain on
+ * the shared executor; the drain runs queued tasks until the queue is empty or it has run
+ * a batch, then hands the worker back so thousands of games share a few threads fairly.
+ * The queue is a lock-free {@link ConcurrentLinkedQueue}: any number of request threads
+ * add to it without blocking, and only the running drain takes from it.
+ */
+public class GameActor {
+
+    // tasks run per drain before yielding the worker to other games
+    private static final int BATCH = 64;
+
+    // state bits; an actor with neither is idle
+    private static final int SCHEDULED = 1;
+    private static final int CLOSED = 2;
+
+    private final int gameID;
+    private final ChessGame game;
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger();
+    private final Runnable drain = this::drain;
+
+    // only touched by the running drain
+    private long movesApplied;
+
+    GameActor(int gameID, ChessGame game, Executor executor) {
+        this.gameID = gameID;
+        this.game = game;
+        this.executor = executor;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+
+    /**
+     * Runs an action against the game on the actor
+     *
+     * @param action must not keep the game or hand it to another thread
+     * @return the action's result, or its exception
+     */
+    public <T> CompletableFuture<T> submit(Function<ChessGame, T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(result, () -> result.complete(action.apply(game)));
+        return result;
+    }
+
+    /**
+     * Makes a move on the actor
+     *
+     * @return completes once the move is made, or with an {@link InvalidMoveException}
+     */
+    public CompletableFuture<Void> makeMove(ChessMove move) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        enqueue(result, () -> {
+            try {
+                game.makeMove(move);
+                movesApplied++;
+                result.complete(null);
+            } catch (InvalidMoveException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return moves made through this actor so far
+     */
+    public CompletableFuture<Long> getMovesApplied() {
+        return submit(game -> movesApplied);
+    }
+
+    /**
+     * Stops taking tasks. Tasks already queued still run; later ones fail.
+     */
+    void close() {
+        state.getAndUpdate(s -> s | CLOSED);
+    }
+
+    private void enqueue(CompletableFuture<?> result, Runnable task) {
+        if ((state.get() & CLOSED) != 0) {
+            result.completeExceptionally(new IllegalStateException("Game " + gameID + " is closed"));
+            return;
+        }
+        tasks.add(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                // the caller hears of it, and the actor carries on with the next task
+                result.completeExceptionally(e);
+            }
+        });
+        schedule();
+    }
+
+    private void schedule() {
+        int current = state.get();
+        // only the submitter that flips the actor from idle starts a drain
+        while ((current & SCHEDULED) == 0) {
+            if (state.compareAndSet(current, current | SCHEDULED)) {
+                executor.execute(drain);
+                return;
+            }
+            current = state.get();
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+        } finally {
+            state.getAndUpdate(s -> s & ~SCHEDULED);
+        }
+        // a task added after the last poll but before the flag cleared would otherwise wait
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+}
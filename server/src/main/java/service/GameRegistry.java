@@ -0,0 +1,223 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * The server's live games, each owned by a {@link GameActor}.
+ * <p>
+ * Games are spread over independently locked stripes by game ID, and a stripe lock is
+ * held only to find, add or remove an actor, never while a move is made. Moves go to
+ * the game's actor, so moves in different games run in parallel on the shared executor
+ * and moves in one game run in order without a lock.
+ */
+public class GameRegistry implements AutoCloseable {
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final Executor executor;
+    // set when the registry created the executor and so must shut it down
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Runs actors on a fork-join pool with one worker per core
+     */
+    public GameRegistry() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true), true);
+    }
+
+    /**
+     * @param executor runs the actors' drains; it is not shut down by {@link #close()}
+     */
+    public GameRegistry(Executor executor) {
+        this(executor, false);
+    }
+
+    private GameRegistry(Executor executor, boolean owned) {
+        // enough stripes that request threads rarely meet on one
+        int count = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 8) * 2 - 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+    }
+
+    /**
+     * Makes a game live
+     *
+     * @throws IllegalArgumentException if the game is already live
+     */
+    public GameActor register(int gameID, ChessGame game) {
+        Stripe stripe = stripeFor(gameID);
+        synchronized (stripe) {
+            if (stripe.games.containsKey(gameID)) {
+                throw new IllegalArgumentException("Game " + gameID + " is already live");
+            }
+            GameActor actor = new GameActor(gameID, game, executor);
+            stripe.games.put(gameID, actor);
+            return actor;
+        }
+    }
+
+    /**
+     * Returns the game's actor, loading the game if it is not live.
+     * <p>
+     * The loader runs without the stripe's lock, so a slow load, e.g. from the database,
+     * holds up no other game. Callers asking for the same game while it loads wait for
+     * that load instead of starting their own, so it runs at most once per game at a time.
+     *
+     * @param loader loads a game that is not live yet; if it throws, every caller waiting
+     *               on that load gets its exception and a later call tries again
+     */
+    public GameActor getOrLoad(int gameID, IntFunction<ChessGame> loader) {
+        Stripe stripe = stripeFor(gameID);
+        CompletableFuture<GameActor> pending;
+        boolean loads = false;
+        synchronized (stripe) {
+            GameActor actor = stripe.games.get(gameID);
+            if (actor != null) {
+                return actor;
+            }
+            pending = stripe.loading.get(gameID);
+            if (pending == null) {
+                pending = new CompletableFuture<>();
+                stripe.loading.put(gameID, pending);
+                loads = true;
+            }
+        }
+        if (!loads) {
+            return await(pending);
+        }
+
+        GameActor actor;
+        try {
+            actor = new GameActor(gameID, loader.apply(gameID), executor);
+        } catch (RuntimeException | Error e) {
+            synchronized (stripe) {
+                stripe.loading.remove(gameID);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (stripe) {
+            stripe.loading.remove(gameID);
+            // a game registered while this one loaded wins
+            GameActor registered = stripe.games.putIfAbsent(gameID, actor);
+            if (registered != null) {
+                actor = registered;
+            }
+        }
+        pending.complete(actor);
+        return actor;
+    }
+
+    private static GameActor await(CompletableFuture<GameActor> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the game's actor, or null if the game is not live
+     */
+    public GameActor get(int gameID) {
+        Stripe stripe = stripeFor(gameID);
+        synchronized (stripe) {
+            return stripe.games.get(gameID);
+        }
+    }
+
+    /**
+     * Makes a move in a live game
+     *
+     * @return completes once the move is made, or with an {@link chess.InvalidMoveException},
+     * or a {@link NoSuchElementException} if the game is not live
+     */
+    public CompletableFuture<Void> makeMove(int gameID, ChessMove move) {
+        GameActor actor = get(gameID);
+        if (actor == null) {
+            return CompletableFuture.failedFuture(new NoSuchElementException("Game " + gameID + " is not live"));
+        }
+        return actor.makeMove(move);
+    }
+
+    /**
+     * Takes a game out of the registry. Moves already submitted are still made.
+     *
+     * @return whether the game was live
+     */
+    public boolean remove(int gameID) {
+        Stripe stripe = stripeFor(gameID);
+        GameActor actor;
+        synchronized (stripe) {
+            actor = stripe.games.remove(gameID);
+        }
+        if (actor == null) {
+            return false;
+        }
+        actor.close();
+        return true;
+    }
+
+    /**
+     * @return number of live games
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.games.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Closes every actor, and shuts down the executor if the registry made it
+     */
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.games.values().forEach(GameActor::close);
+                stripe.games.clear();
+            }
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private Stripe stripeFor(int gameID) {
+        // game IDs are often sequential; spread neighbors across stripes
+        return stripes[(gameID * 0x9E3779B9 >>> 16) & mask];
+    }
+
+    private static final class Stripe {
+        final Map<Integer, GameActor> games = new HashMap<>();
+        // games being loaded by getOrLoad, outside the lock
+        final Map<Integer, CompletableFuture<GameActor>> loading = new HashMap<>();
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PackedMove;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Everything the server works out about one position: the legal moves of the side to
+ * move, whether it is in check, mated or stalemated, and the engine's verdict.
+ * <p>
+ * The moves and check state are cheap and always present. The verdict costs a search,
+ * so an analysis made only to answer move and check questions carries none; see
+ * {@link #isScored()}.
+ */
+public class PositionAnalysis {
+
+    private final int[] legalMoves;
+    private final boolean inCheck;
+    private final int score;
+    private final int depth;
+    private final int bestMove;
+    private final boolean scored;
+
+    /**
+     * An analysis without the engine's verdict
+     *
+     * @param legalMoves {@link PackedMove}s of the side to move
+     */
+    public PositionAnalysis(int[] legalMoves, boolean inCheck) {
+        this(legalMoves, inCheck, 0, 0, 0, false);
+    }
+
+    /**
+     * @param legalMoves {@link PackedMove}s of the side to move
+     * @param score      engine score in centipawns for the side to move
+     * @param depth      search depth behind the score, 0 if none
+     * @param bestMove   engine's choice as a {@link PackedMove}, or 0
+     */
+    public PositionAnalysis(int[] legalMoves, boolean inCheck, int score, int depth, int bestMove) {
+        this(legalMoves, inCheck, score, depth, bestMove, true);
+    }
+
+    PositionAnalysis(int[] legalMoves, boolean inCheck, int score, int depth, int bestMove, boolean scored) {
+        this.scored = scored;
+        this.legalMoves = legalMoves;
+        this.inCheck = inCheck;
+        this.score = score;
+        this.depth = depth;
+        this.bestMove = bestMove;
+    }
+
+    /**
+     * @return the legal moves as {@link PackedMove}s; the array is not copied
+     */
+    public int[] getLegalMoves() {
+        return legalMoves;
+    }
+
+    /**
+     * Same answer as {@link chess.ChessGame#validMoves} for a piece of the side to move
+     */
+    public Collection<ChessMove> validMoves(ChessPosition startPosition) {
+        int from = ChessBoard.squareIndex(startPosition.getRow(), startPosition.getColumn());
+        Collection<ChessMove> moves = new HashSet<>();
+        for (int move : legalMoves) {
+            if (PackedMove.from(move) == from) {
+                moves.add(PackedMove.toChessMove(move));
+            }
+        }
+        return moves;
+    }
+
+    public boolean isInCheck() {
+        return inCheck;
+    }
+
+    public boolean isCheckmate() {
+        return inCheck && legalMoves.length == 0;
+    }
+
+    public boolean isStalemate() {
+        return !inCheck && legalMoves.length == 0;
+    }
+
+    /**
+     * @return whether the score, depth and best move hold the engine's verdict; without
+     * it they are all 0
+     */
+    public boolean isScored() {
+        return scored;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the engine's move, or null if there is none
+     */
+    public ChessMove getBestMove() {
+        return bestMove == 0 ? null : PackedMove.toChessMove(bestMove);
+    }
+
+    public int getPackedBestMove() {
+        return bestMove;
+    }
+}
@@ -0,0 +1,122 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConnectionPoolTests {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    // a private in-memory database per test, kept alive while any connection is open
+    private ConnectionPool.ConnectionFactory factory() {
+        String url = "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";MODE=MySQL";
+        return () -> {
+            opened.incrementAndGet();
+            return DriverManager.getConnection(url);
+        };
+    }
+
+
+    @Test
+    @DisplayName("Reuses Connections And Statements")
+    public void reuse() throws Exception {
+        try (var pool = new ConnectionPool(factory(), 4, 1000)) {
+            Object first;
+            Object statement;
+            try (var conn = pool.acquire()) {
+                first = conn.getConnection();
+                statement = conn.prepare("SELECT 1");
+            }
+            for (int i = 0; i < 10; i++) {
+                try (var conn = pool.acquire()) {
+                    Assertions.assertSame(first, conn.getConnection());
+                    Assertions.assertSame(statement, conn.prepare("SELECT 1"));
+                    Assertions.assertNotSame(statement, conn.prepareReturningKeys("SELECT 1"));
+                }
+            }
+            Assertions.assertEquals(1, opened.get());
+            Assertions.assertEquals(1, pool.getSize());
+            Assertions.assertEquals(11, pool.getAcquisitions());
+            Assertions.assertEquals(0, pool.getInUse());
+        }
+    }
+
+
+    @Test
+    @DisplayName("Statement Cache Is Bounded")
+    public void statementCache() throws Exception {
+        try (var pool = new ConnectionPool(factory(), 1, 1000, 4, ConnectionPool.DEFAULT_VALIDATION_INTERVAL_MILLIS);
+             var conn = pool.acquire()) {
+            var evicted = conn.prepare("SELECT 0");
+            for (int i = 1; i <= 4; i++) {
+                conn.prepare("SELECT " + i);
+            }
+            Assertions.assertEquals(4, conn.getCachedStatements());
+            Assertions.assertTrue(evicted.isClosed());
+        }
+    }
+
+
+    @Test
+    @DisplayName("Times Out When Exhausted")
+    public void timeout() throws Exception {
+        try (var pool = new ConnectionPool(factory(), 2, 100)) {
+            var a = pool.acquire();
+            var b = pool.acquire();
+            long start = System.nanoTime();
+            Assertions.assertThrows(DataAccessException.class, pool::acquire);
+            Assertions.assertTrue(System.nanoTime() - start >= 90_000_000L);
+            Assertions.assertEquals(1, pool.getTimeouts());
+            Assertions.assertEquals(2, pool.getInUse());
+
+            // a release wakes a waiter
+            var waiter = new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                a.close();
+            });
+            waiter.start();
+            try (var c = pool.acquire()) {
+                Assertions.assertNotNull(c);
+            }
+            waiter.join();
+            b.close();
+            Assertions.assertEquals(2, opened.get());
+            Assertions.assertTrue(pool.getMaxWaitMillis() > 0);
+            Assertions.assertTrue(pool.getUtilization() > 0);
+        }
+    }
+
+
+    @Test
+    @DisplayName("Replaces Dead And Broken Connections")
+    public void health() throws Exception {
+        try (var pool = new ConnectionPool(factory(), 2, 1000, 8, 0)) {
+            Connection dropped;
+            try (var conn = pool.acquire()) {
+                dropped = conn.getConnection();
+            }
+            // the database drops the connection while it sits idle
+            dropped.close();
+            try (var conn = pool.acquire()) {
+                Assertions.assertFalse(conn.getConnection().isClosed());
+                conn.markBroken();
+            }
+            Assertions.assertEquals(1, pool.getValidationFailures());
+            Assertions.assertEquals(0, pool.getSize());
+            try (var conn = pool.acquire()) {
+                try (var rs = conn.prepare("SELECT 1").executeQuery()) {
+                    Assertions.assertTrue(rs.next());
+                }
+            }
+            Assertions.assertEquals(3, opened.get());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+public class SqlDAOTests {
+
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    public static void init() throws DataAccessException {
+        pool = TestDatabase.pool("dao");
+    }
+
+    @AfterAll
+    public static void shutdown() {
+        pool.close();
+    }
+
+    @BeforeEach
+    public void clear() throws DataAccessException {
+        new SqlUserDAO(pool).clear();
+        new SqlAuthDAO(pool).clear();
+        new SqlGameDAO(pool).clear();
+    }
+
+
+    @Test
+    @DisplayName("Users")
+    public void users() throws DataAccessException {
+        var users = new SqlUserDAO(pool);
+        users.createUser(new UserData("alice", "secret", "alice@example.com"));
+        Assertions.assertThrows(DataAccessException.class,
+                () -> users.createUser(new UserData("alice", "other", "a@example.com")));
+
+        var stored = users.getUser("alice");
+        Assertions.assertEquals("alice@example.com", stored.getEmail());
+        Assertions.assertNotEquals("secret", stored.getPassword());
+        Assertions.assertTrue(users.verifyUser("alice", "secret"));
+        Assertions.assertFalse(users.verifyUser("alice", "wrong"));
+        Assertions.assertNull(users.getUser("bob"));
+    }
+
+
+    @Test
+    @DisplayName("Auth Tokens")
+    public void auth() throws DataAccessException {
+        var auths = new SqlAuthDAO(pool);
+        auths.createAuth(new AuthData("token", "alice"));
+        Assertions.assertEquals(new AuthData("token", "alice"), auths.getAuth("token"));
+        auths.deleteAuth("token");
+        Assertions.assertNull(auths.getAuth("token"));
+    }
+
+
+    @Test
+    @DisplayName("Games")
+    public void games() throws Exception {
+        var games = new SqlGameDAO(pool);
+        int first = games.createGame("first");
+        int second = games.createGame("second");
+        Assertions.assertNotEquals(first, second);
+
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        games.updateGame(new GameData(first, "alice", null, "first", game));
+
+        var stored = games.getGame(first);
+        Assertions.assertEquals("alice", stored.getWhiteUsername());
+        Assertions.assertNull(stored.getBlackUsername());
+        Assertions.assertEquals(game.toFen(), stored.getGame().toFen());
+        // only the grid is stored; the masks, key and scores are rebuilt from it
+        Assertions.assertFalse(new Gson().toJson(game).contains("pieceBitboards"));
+        Assertions.assertEquals(game.getBoard(), stored.getGame().getBoard());
+        Assertions.assertEquals(game.getZobristKey(), stored.getGame().getZobristKey());
+        Assertions.assertEquals(game.evaluate(), stored.getGame().evaluate());
+        Assertions.assertEquals(2, games.listGames().size());
+        Assertions.assertNull(games.getGame(-1));
+        Assertions.assertThrows(DataAccessException.class,
+                () -> games.updateGame(new GameData(-1, null, null, "missing", new ChessGame())));
+    }
+}
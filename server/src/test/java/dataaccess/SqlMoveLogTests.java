@@ -0,0 +1,115 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.MoveList;
+import chess.PackedMove;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SqlMoveLogTests {
+
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    public static void init() throws DataAccessException {
+        pool = TestDatabase.pool("movelog");
+    }
+
+    @AfterAll
+    public static void shutdown() {
+        pool.close();
+    }
+
+    @BeforeEach
+    public void clear() throws DataAccessException {
+        new SqlMoveLog(pool).clear();
+    }
+
+    /**
+     * Plays and logs random legal moves, continuing from the last ply logged
+     *
+     * @return the moves played, flags stripped
+     */
+    private static int[] play(SqlMoveLog log, int gameID, ChessGame game, int plies, long seed) throws Exception {
+        var random = new Random(seed);
+        var moves = new MoveList();
+        int[] played = new int[plies];
+        int first = log.lastPly(gameID);
+        int ply = 0;
+        while (ply < plies) {
+            moves.clear();
+            if (game.legalMoves(moves) == 0) {
+                break;
+            }
+            int move = moves.get(random.nextInt(moves.size()));
+            game.makeMove(move);
+            played[ply++] = PackedMove.withoutFlags(move);
+            log.append(gameID, first + ply, PackedMove.toChessMove(move), game);
+        }
+        return Arrays.copyOf(played, ply);
+    }
+
+
+    @Test
+    @DisplayName("Rebuilds Game From Snapshot And Moves")
+    public void rebuild() throws Exception {
+        var log = new SqlMoveLog(pool, 8);
+        var game = new ChessGame();
+        log.start(1, game);
+        Assertions.assertEquals(new ChessGame().toFen(), log.load(1).toFen());
+
+        int[] played = play(log, 1, game, 30, 7);
+        Assertions.assertEquals(game.toFen(), log.load(1).toFen());
+        Assertions.assertArrayEquals(played, log.history(1));
+        Assertions.assertEquals(played.length, log.lastPly(1));
+
+        // loading resumes from the latest snapshot, and logging continues from the loaded game
+        var loaded = log.load(1);
+        play(log, 1, loaded, 5, 11);
+        Assertions.assertEquals(loaded.toFen(), log.load(1).toFen());
+        Assertions.assertNull(log.load(2));
+        Assertions.assertEquals(0, log.lastPly(2));
+    }
+
+
+    @Test
+    @DisplayName("Starts From Any Position")
+    public void customStart() throws Exception {
+        var log = new SqlMoveLog(pool, 4);
+        var game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        log.start(3, game);
+        play(log, 3, game, 10, 3);
+        Assertions.assertEquals(game.toFen(), log.load(3).toFen());
+
+        // starting again replaces the old log
+        log.start(3, new ChessGame());
+        Assertions.assertEquals(0, log.history(3).length);
+        Assertions.assertEquals(new ChessGame().toFen(), log.load(3).toFen());
+    }
+
+
+    @Test
+    @DisplayName("Rejects Duplicate And Missing Plies")
+    public void integrity() throws Exception {
+        var log = new SqlMoveLog(pool, 100);
+        var game = new ChessGame();
+        log.start(5, game);
+        int[] played = play(log, 5, game, 3, 5);
+        Assertions.assertThrows(DataAccessException.class,
+                () -> log.append(5, 3, PackedMove.toChessMove(played[2]), game));
+
+        try (var conn = pool.acquire();
+             var statement = conn.getConnection().createStatement()) {
+            statement.executeUpdate("DELETE FROM game_moves WHERE game_id = 5 AND ply = 2");
+        }
+        Assertions.assertThrows(DataAccessException.class, () -> log.load(5));
+
+        try (var conn = pool.acquire();
+             var statement = conn.getConnection().createStatement()) {
+            statement.executeUpdate("UPDATE game_snapshots SET state = X'FFFF' WHERE game_id = 5");
+        }
+        Assertions.assertThrows(DataAccessException.class, () -> log.load(5));
+    }
+}
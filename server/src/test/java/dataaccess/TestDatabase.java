@@ -0,0 +1,29 @@
+package dataaccess;
+
+import java.sql.DriverManager;
+
+/**
+ * In-memory H2 databases in MySQL mode, standing in for the server's MySQL in tests
+ */
+final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * @return connections to the named database, which lives until the test JVM exits
+     */
+    static ConnectionPool.ConnectionFactory factory(String name) {
+        String url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        return () -> DriverManager.getConnection(url);
+    }
+
+    /**
+     * @return a pool on the named database, with the server's tables created
+     */
+    static ConnectionPool pool(String name) throws DataAccessException {
+        ConnectionPool pool = new ConnectionPool(factory(name));
+        DatabaseManager.createTables(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,122 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.*;
+
+public class WriteBehindGameDAOTests {
+
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    public static void init() throws DataAccessException {
+        pool = TestDatabase.pool("writebehind");
+    }
+
+    @AfterAll
+    public static void shutdown() {
+        pool.close();
+    }
+
+    @BeforeEach
+    public void clear() throws DataAccessException {
+        new SqlGameDAO(pool).clear();
+    }
+
+
+    @Test
+    @DisplayName("Coalesces Updates And Flushes On Close")
+    public void coalesce() throws Exception {
+        var sql = new SqlGameDAO(pool);
+        int id = sql.createGame("game");
+        var game = new ChessGame();
+        String start = game.toFen();
+
+        // a long interval, so nothing is written before close
+        var store = new WriteBehindGameDAO(sql, 60_000, 100);
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        store.updateGame(new GameData(id, "alice", "bob", "game", game));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        store.updateGame(new GameData(id, "alice", "bob", "game", game));
+
+        Assertions.assertEquals(start, sql.getGame(id).getGame().toFen());
+        Assertions.assertEquals(game.toFen(), store.getGame(id).getGame().toFen());
+        Assertions.assertEquals(1, store.getPending());
+
+        store.close();
+        Assertions.assertEquals(game.toFen(), sql.getGame(id).getGame().toFen());
+        Assertions.assertEquals(2, store.getUpdates());
+        Assertions.assertEquals(1, store.getWritten());
+        Assertions.assertEquals(0, store.getPending());
+        Assertions.assertThrows(DataAccessException.class,
+                () -> store.updateGame(new GameData(id, null, null, "game", new ChessGame())));
+    }
+
+
+    @Test
+    @DisplayName("Flushes By Interval And Size")
+    public void flushes() throws Exception {
+        var sql = new SqlGameDAO(pool);
+        int[] ids = new int[10];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = sql.createGame("game " + i);
+        }
+        try (var store = new WriteBehindGameDAO(sql, 50, 5)) {
+            store.updateGame(new GameData(ids[0], "alice", null, "game 0", new ChessGame()));
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (!"alice".equals(sql.getGame(ids[0]).getWhiteUsername()) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals("alice", sql.getGame(ids[0]).getWhiteUsername());
+
+            for (int id : ids) {
+                store.updateGame(new GameData(id, "bob", null, "renamed", new ChessGame()));
+            }
+            store.flush();
+            Assertions.assertEquals(0, store.getPending());
+            for (GameData game : sql.listGames()) {
+                Assertions.assertEquals("bob", game.getWhiteUsername());
+            }
+            Assertions.assertTrue(store.getFlushes() >= 3);
+        }
+    }
+
+
+    @Test
+    @DisplayName("Missing Game Does Not Block Others")
+    public void missingGame() throws Exception {
+        var sql = new SqlGameDAO(pool);
+        int id = sql.createGame("game");
+        try (var store = new WriteBehindGameDAO(sql, 60_000, 100)) {
+            store.updateGame(new GameData(id, "alice", null, "game", new ChessGame()));
+            store.updateGame(new GameData(-1, null, null, "missing", new ChessGame()));
+            store.flush();
+            Assertions.assertEquals(1, store.getFailures());
+            Assertions.assertNotNull(store.getLastFailure());
+            Assertions.assertEquals(0, store.getPending());
+            Assertions.assertEquals(1, store.getWritten());
+            Assertions.assertEquals("alice", sql.getGame(id).getWhiteUsername());
+        }
+    }
+
+
+    @Test
+    @DisplayName("Backlog Is Bounded While Database Is Down")
+    public void databaseDown() throws Exception {
+        var down = new ConnectionPool(TestDatabase.factory("writebehind"));
+        down.close();
+        var store = new WriteBehindGameDAO(new SqlGameDAO(down), 60_000, 2);
+        for (int id = 1; id <= 8; id++) {
+            store.updateGame(new GameData(id, null, null, "game", new ChessGame()));
+        }
+        // four batches are dirty: a new game is refused, a dirty one still updates
+        Assertions.assertThrows(DataAccessException.class,
+                () -> store.updateGame(new GameData(9, null, null, "game", new ChessGame())));
+        store.updateGame(new GameData(8, "alice", null, "game", new ChessGame()));
+        Assertions.assertEquals(8, store.getPending());
+        Assertions.assertEquals("alice", store.getGame(8).getWhiteUsername());
+        Assertions.assertThrows(DataAccessException.class, store::close);
+    }
+}
@@ -0,0 +1,141 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PackedMove;
+import chess.book.OpeningBookBuilder;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseGenerator;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import spark.Spark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ServerTests {
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    private Server server;
+
+    @AfterEach
+    public void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+
+    @Test
+    @DisplayName("Virtual Mode Handles Requests On Virtual Threads")
+    public void virtualThreads() throws Exception {
+        int port = start(Server.ThreadMode.VIRTUAL, 10, 1000, null);
+        Assertions.assertEquals("true", get(port, "/thread").body());
+
+        var analysis = get(port, "/analysis?fen=" + URLEncoder.encode(
+                "k7/8/1K6/8/8/8/8/6Q1 w - - 0 1", StandardCharsets.UTF_8));
+        Assertions.assertEquals(200, analysis.statusCode());
+        Assertions.assertTrue(analysis.body().contains("\"bestMove\""), analysis.body());
+    }
+
+
+    @Test
+    @DisplayName("Platform Mode Handles Requests On Platform Threads")
+    public void platformThreads() throws Exception {
+        int port = start(Server.ThreadMode.PLATFORM, 10, 1000, null);
+        Assertions.assertEquals("false", get(port, "/thread").body());
+        Assertions.assertEquals(400, get(port, "/analysis?fen=nonsense").statusCode());
+    }
+
+
+    @Test
+    @DisplayName("Requests Over The Limit Are Refused")
+    public void concurrencyLimit() throws Exception {
+        var release = new CountDownLatch(1);
+        int port = start(Server.ThreadMode.VIRTUAL, 1, 200, release);
+
+        // the first request holds the only slot until released
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(request(port, "/block"),
+                HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(300);
+        Assertions.assertEquals(503, get(port, "/thread").statusCode(), "Second request should time out waiting");
+
+        release.countDown();
+        Assertions.assertEquals(200, first.get(5, TimeUnit.SECONDS).statusCode());
+        Assertions.assertEquals(200, get(port, "/thread").statusCode(), "Slot should be free again");
+    }
+
+
+    @Test
+    @DisplayName("Analysis Answers From The Opening Book")
+    public void openingBook(@TempDir Path directory) throws Exception {
+        // a search would never choose 1. a3, so only the book can suggest it
+        var a3 = new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null);
+        var builder = new OpeningBookBuilder();
+        builder.addGame(new ChessGame(), new int[]{PackedMove.fromChessMove(a3)}, "1-0");
+        Path file = directory.resolve("book.bin");
+        builder.write(file);
+
+        int port = start(Server.ThreadMode.PLATFORM, 10, 1000, null, file);
+        var analysis = get(port, "/analysis");
+        Assertions.assertEquals(200, analysis.statusCode());
+        Assertions.assertTrue(analysis.body().contains("\"bestMove\":\"" + a3 + "\""), analysis.body());
+    }
+
+
+    @Test
+    @DisplayName("Analysis Answers Endings From The Tablebase")
+    public void tablebase(@TempDir Path directory) throws Exception {
+        new TablebaseGenerator(directory).generate("KRK");
+        String fen = "8/8/8/3k4/8/8/8/R3K3 w - - 0 1";
+        int score;
+        try (var tables = Tablebase.open(directory)) {
+            score = Tablebase.toScore(tables.probe(ChessGame.fromFen(fen)));
+        }
+
+        server = new Server(Server.ThreadMode.PLATFORM, 10);
+        server.setTablebaseDirectory(directory);
+        int port = server.run(0);
+        // the mate is too far off for the search to see
+        var analysis = get(port, "/analysis?fen=" + URLEncoder.encode(fen, StandardCharsets.UTF_8));
+        Assertions.assertEquals(200, analysis.statusCode());
+        Assertions.assertTrue(analysis.body().contains("\"score\":" + score), analysis.body());
+    }
+
+
+    private int start(Server.ThreadMode mode, int limit, long timeoutMillis, CountDownLatch release) {
+        return start(mode, limit, timeoutMillis, release, null);
+    }
+
+    private int start(Server.ThreadMode mode, int limit, long timeoutMillis, CountDownLatch release, Path book) {
+        server = new Server(mode, limit, timeoutMillis) {
+            @Override
+            protected void createRoutes() {
+                Spark.get("/thread", (req, res) -> Boolean.toString(Thread.currentThread().isVirtual()));
+                Spark.get("/block", (req, res) -> release.await(5, TimeUnit.SECONDS));
+                super.createRoutes();
+            }
+        };
+        server.setBookFile(book);
+        return server.run(0);
+    }
+
+    private static HttpRequest request(int port, String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+    }
+
+    private static HttpResponse<String> get(int port, String path) throws IOException, InterruptedException {
+        return client.send(request(port, path), HttpResponse.BodyHandlers.ofString());
+    }
+}
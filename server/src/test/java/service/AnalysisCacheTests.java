@@ -0,0 +1,150 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.MoveList;
+import chess.engine.Limits;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class AnalysisCacheTests {
+
+    @Test
+    @DisplayName("Cached Analysis Matches Game")
+    public void cachedAnalysisMatchesGame() {
+        AnalysisService service = new AnalysisService(new AnalysisCache(64), Limits.depth(2));
+        ChessGame game = new ChessGame();
+
+        for (int row = 1; row <= 2; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                Assertions.assertEquals(game.validMoves(position), service.validMoves(game, position),
+                        "Wrong moves from " + position);
+            }
+        }
+        Assertions.assertEquals(1, service.getCache().getMisses(), "Position should be analysed once");
+        Assertions.assertEquals(15, service.getCache().getHits(), "Later lookups should hit the cache");
+        Assertions.assertNotNull(service.analyze(game).getBestMove(), "Engine should suggest a move");
+    }
+
+
+    @Test
+    @DisplayName("Checkmate and Stalemate")
+    public void checkmateAndStalemate() {
+        AnalysisService service = new AnalysisService(new AnalysisCache(64), Limits.depth(2));
+
+        ChessGame mated = ChessGame.fromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        Assertions.assertTrue(service.isInCheck(mated, ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(service.isInCheckmate(mated, ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(service.isInStalemate(mated, ChessGame.TeamColor.WHITE));
+
+        ChessGame stalemated = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        Assertions.assertFalse(service.isInCheckmate(stalemated, ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(service.isInStalemate(stalemated, ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(0, service.analyze(stalemated).getScore());
+    }
+
+
+    @Test
+    @DisplayName("Move Questions Never Search")
+    public void moveQuestionsNeverSearch() {
+        try (var service = new AnalysisService(new AnalysisCache(64), Limits.depth(2), null, null, 1)) {
+            ChessGame game = ChessGame.fromFen("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+            Assertions.assertEquals(game.validMoves(new ChessPosition(1, 6)),
+                    service.validMoves(game, new ChessPosition(1, 6)));
+            Assertions.assertFalse(service.isInCheck(game, ChessGame.TeamColor.WHITE));
+            Assertions.assertFalse(service.isInCheckmate(game, ChessGame.TeamColor.WHITE));
+            Assertions.assertFalse(service.isInStalemate(game, ChessGame.TeamColor.WHITE));
+            Assertions.assertEquals(0, service.getEnginesCreated(), "Move questions should not take an engine");
+            Assertions.assertFalse(service.getCache().get(game.getZobristKey()).isScored());
+
+            // the verdict is searched for on request and kept with the moves
+            Assertions.assertTrue(service.analyze(game).isScored());
+            Assertions.assertEquals(1, service.getEnginesCreated());
+            Assertions.assertTrue(service.getCache().get(game.getZobristKey()).isScored());
+        }
+    }
+
+
+    @Test
+    @DisplayName("Engines Are Pooled Across Threads")
+    public void enginesPooled() throws Exception {
+        try (var service = new AnalysisService(new AnalysisCache(1024), Limits.depth(2), null, null, 2)) {
+            // a fresh virtual thread per request, as the server runs them in virtual mode
+            var threads = new ArrayList<Thread>();
+            var results = new ConcurrentLinkedQueue<PositionAnalysis>();
+            ChessGame start = new ChessGame();
+            var moves = new MoveList();
+            start.legalMoves(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                ChessGame game = new ChessGame(start);
+                game.makeMove(moves.get(i));
+                threads.add(Thread.ofVirtual().start(() -> results.add(service.analyze(game))));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assertions.assertEquals(moves.size(), results.size());
+            Assertions.assertTrue(service.getEnginesCreated() <= 2, "Engines should be reused, not made per thread");
+        }
+    }
+
+
+    @Test
+    @DisplayName("Least Recently Used Evicted")
+    public void leastRecentlyUsedEvicted() {
+        AnalysisCache cache = new AnalysisCache(3);
+        PositionAnalysis analysis = new PositionAnalysis(new int[]{1, 2, 3}, false, 42, 5, 0);
+
+        cache.put(1, analysis);
+        cache.put(2, analysis);
+        cache.put(3, analysis);
+        Assertions.assertNotNull(cache.get(1));
+        cache.put(4, analysis);
+
+        Assertions.assertNull(cache.get(2), "Oldest entry should have been evicted");
+        Assertions.assertNotNull(cache.get(1));
+        Assertions.assertNotNull(cache.get(3));
+        Assertions.assertNotNull(cache.get(4));
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertEquals(1, cache.getEvictions());
+
+        PositionAnalysis stored = cache.get(4);
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, stored.getLegalMoves());
+        Assertions.assertEquals(42, stored.getScore());
+        Assertions.assertEquals(5, stored.getDepth());
+    }
+
+
+    @Test
+    @DisplayName("Random Keys Stay Consistent")
+    public void randomKeysStayConsistent() {
+        AnalysisCache cache = new AnalysisCache(100);
+        Random random = new Random(240);
+        // recency is per segment, so only look back well within one segment's share
+        long[] recent = new long[cache.capacity() / 4];
+
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            cache.put(key, new PositionAnalysis(new int[i % 7], i % 2 == 0, (int) key % 1000, 1, 0));
+            recent[i % recent.length] = key;
+            if (i % 5 == 0) {
+                Assertions.assertTrue(cache.remove(key));
+                Assertions.assertNull(cache.get(key));
+                recent[i % recent.length] = 0;
+            }
+            Assertions.assertTrue(cache.size() <= cache.capacity(), "Cache grew past its capacity");
+        }
+        for (long key : recent) {
+            if (key != 0) {
+                PositionAnalysis analysis = cache.get(key);
+                Assertions.assertNotNull(analysis, "Recent key was lost");
+                Assertions.assertEquals((int) key % 1000, analysis.getScore());
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+public class GameRegistryTests {
+
+    // knights out and back: four moves that return to the starting position
+    private static final ChessMove[] SHUFFLE = {
+            move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7), move(6, 6, 8, 7)};
+
+    @Test
+    @DisplayName("Many Games In Parallel")
+    public void manyGames() throws Exception {
+        int games = 1000;
+        int rounds = 5;
+        var pool = new ForkJoinPool(8);
+        try (var registry = new GameRegistry(pool)) {
+            for (int id = 0; id < games; id++) {
+                registry.register(id, new ChessGame());
+            }
+            Assertions.assertEquals(games, registry.size());
+
+            // each submitter owns a share of the games, so every game sees its moves in order
+            List<Thread> submitters = new ArrayList<>();
+            List<CompletableFuture<Void>> moves = Collections.synchronizedList(new ArrayList<>());
+            for (int t = 0; t < 4; t++) {
+                int first = t;
+                submitters.add(Thread.ofPlatform().start(() -> {
+                    for (int ply = 0; ply < rounds * SHUFFLE.length; ply++) {
+                        for (int id = first; id < games; id += 4) {
+                            moves.add(registry.makeMove(id, SHUFFLE[ply % SHUFFLE.length]));
+                        }
+                    }
+                }));
+            }
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            CompletableFuture.allOf(moves.toArray(CompletableFuture[]::new)).get();
+
+            String start = new ChessGame().toFen().split(" ")[0];
+            for (int id = 0; id < games; id++) {
+                var actor = registry.get(id);
+                Assertions.assertEquals(rounds * SHUFFLE.length, actor.getMovesApplied().get());
+                Assertions.assertEquals(start, actor.submit(game -> game.toFen().split(" ")[0]).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    @DisplayName("One Game Runs One Task At A Time")
+    public void serialExecution() throws Exception {
+        try (var registry = new GameRegistry()) {
+            var actor = registry.register(7, new ChessGame());
+            // a plain counter: lost updates would show if two tasks ever overlapped
+            int[] counter = new int[1];
+            var inFlight = new AtomicInteger();
+            List<CompletableFuture<Integer>> results = Collections.synchronizedList(new ArrayList<>());
+
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                submitters.add(Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        results.add(actor.submit(game -> {
+                            Assertions.assertEquals(1, inFlight.incrementAndGet());
+                            int value = ++counter[0];
+                            inFlight.decrementAndGet();
+                            return value;
+                        }));
+                    }
+                }));
+            }
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get();
+            Assertions.assertEquals(40_000, actor.submit(game -> counter[0]).get());
+        }
+    }
+
+
+    @Test
+    @DisplayName("Invalid and Unknown Games")
+    public void failures() throws Exception {
+        try (var registry = new GameRegistry()) {
+            registry.register(1, new ChessGame());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> registry.register(1, new ChessGame()));
+
+            var illegal = registry.makeMove(1, move(1, 5, 3, 5));
+            var cause = Assertions.assertThrows(ExecutionException.class, illegal::get).getCause();
+            Assertions.assertInstanceOf(InvalidMoveException.class, cause);
+            Assertions.assertEquals(ChessGame.TeamColor.WHITE, registry.get(1).submit(ChessGame::getTeamTurn).get(),
+                    "A rejected move should leave the game alone");
+
+            var missing = registry.makeMove(2, SHUFFLE[0]);
+            Assertions.assertInstanceOf(NoSuchElementException.class,
+                    Assertions.assertThrows(ExecutionException.class, missing::get).getCause());
+
+            var loads = new AtomicInteger();
+            var loaded = registry.getOrLoad(2, id -> {
+                loads.incrementAndGet();
+                return new ChessGame();
+            });
+            Assertions.assertSame(loaded, registry.getOrLoad(2, id -> new ChessGame()));
+            Assertions.assertEquals(1, loads.get());
+
+            Assertions.assertTrue(registry.remove(2));
+            Assertions.assertFalse(registry.remove(2));
+            Assertions.assertNull(registry.get(2));
+            Assertions.assertThrows(ExecutionException.class, () -> loaded.makeMove(SHUFFLE[0]).get(),
+                    "A removed game should take no more moves");
+        }
+    }
+
+
+    @Test
+    @DisplayName("Slow Load Holds Up No One")
+    public void slowLoad() throws Exception {
+        try (var registry = new GameRegistry(new ForkJoinPool(2))) {
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            var loads = new AtomicInteger();
+            IntFunction<ChessGame> slowLoader = id -> {
+                loads.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new ChessGame();
+            };
+            var first = CompletableFuture.supplyAsync(() -> registry.getOrLoad(7, slowLoader));
+            started.await();
+
+            // the game's own stripe stays usable while it loads
+            Assertions.assertNull(registry.get(7));
+            registry.register(8, new ChessGame());
+            var second = CompletableFuture.supplyAsync(() -> registry.getOrLoad(7, slowLoader));
+            Thread.sleep(20);
+            Assertions.assertFalse(second.isDone(), "A second caller should wait for the load in progress");
+
+            release.countDown();
+            Assertions.assertSame(first.get(), second.get());
+            Assertions.assertEquals(1, loads.get());
+
+            Assertions.assertThrows(IllegalStateException.class, () -> registry.getOrLoad(9, id -> {
+                throw new IllegalStateException("database down");
+            }));
+            Assertions.assertNotNull(registry.getOrLoad(9, id -> new ChessGame()), "A failed load should be retried");
+        }
+    }
+
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,261 @@
+package chess;
+
+/**
+ * Precomputed attack sets for every piece type, built once when the class loads.
+ * <p>
+ * Knights, kings and pawns have one fixed mask per square. For the sliding pieces,
+ * each square has a "relevant occupancy" mask (the squares on its rays, minus the
+ * board edge). Multiplying the occupied squares under that mask by a magic number
+ * and keeping the top bits gives a perfect index into that square's slice of the
+ * attack table, so a rook or bishop lookup is a mask, a multiply, a shift and a load.
+ * <p>
+ * Squares are numbered 0-63, see {@link ChessBoard#squareIndex(int, int)}.
+ */
+public final class AttackTables {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+    private static final int[][] KNIGHT_OFFSETS = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
+    private static final int[][] KING_OFFSETS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // squares strictly between two squares on a shared rank, file or diagonal (else 0),
+    // and the whole line through them (else 0)
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_ATTACKS;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_ATTACKS;
+
+    // fixed seed so the tables (and any bug in them) are the same on every run
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = leaperMask(square, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = leaperMask(square, KING_OFFSETS);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = leaperMask(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = leaperMask(square, new int[][]{{-1, -1}, {-1, 1}});
+        }
+        ROOK_ATTACKS = buildTable(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_ATTACKS = buildTable(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long ends = (1L << a) | (1L << b);
+                for (int[][] directions : new int[][][]{ROOK_DIRECTIONS, BISHOP_DIRECTIONS}) {
+                    if ((slowAttacks(a, 0, directions) & (1L << b)) != 0) {
+                        BETWEEN[a][b] = slowAttacks(a, 1L << b, directions) & slowAttacks(b, 1L << a, directions);
+                        LINE[a][b] = (slowAttacks(a, 0, directions) & slowAttacks(b, 0, directions)) | ends;
+                    }
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    /**
+     * @return squares a knight on the given square attacks
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * @return squares a king on the given square attacks
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return the two (or one, on the edge) diagonal squares a pawn of the given color attacks
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @return squares strictly between a and b when they share a rank, file or diagonal, otherwise 0
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * @return every square on the rank, file or diagonal through a and b (edge to edge), otherwise 0
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * @return squares a rook on the given square attacks, stopping at (and including) the first blocker
+     */
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_ATTACKS[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * @return squares a bishop on the given square attacks, stopping at (and including) the first blocker
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square] + index];
+    }
+
+    /**
+     * @return squares a queen on the given square attacks, stopping at (and including) the first blocker
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    private static long[] buildTable(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantMask(square, directions);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+
+        long[] table = new long[size];
+        for (int square = 0; square < 64; square++) {
+            findMagic(square, directions, masks[square], magics, shifts, table, offsets[square]);
+        }
+        return table;
+    }
+
+    private static void findMagic(int square, int[][] directions, long mask, long[] magics, int[] shifts,
+                                  long[] table, int offset) {
+        int bits = Long.bitCount(mask);
+        int entries = 1 << bits;
+
+        // enumerate every subset of the mask (carry-rippler) and its true attack set
+        long[] occupancies = new long[entries];
+        long[] attacks = new long[entries];
+        long subset = 0;
+        for (int i = 0; i < entries; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slowAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        int[] epoch = new int[entries];
+        int attempt = 0;
+        while (true) {
+            long magic = nextSparseRandom();
+            // a useful magic spreads the mask's high bits into the top byte
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+
+            attempt++;
+            boolean collision = false;
+            for (int i = 0; i < entries && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (epoch[index] < attempt) {
+                    epoch[index] = attempt;
+                    table[offset + index] = attacks[i];
+                } else if (table[offset + index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+
+            if (!collision) {
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                return;
+            }
+        }
+    }
+
+    private static long leaperMask(int square, int[][] offsets) {
+        int row = square >>> 3;
+        int col = square & 7;
+        long mask = 0;
+
+        for (int[] offset : offsets) {
+            if (onBoard(row + offset[0], col + offset[1])) {
+                mask |= 1L << ((row + offset[0]) * 8 + col + offset[1]);
+            }
+        }
+        return mask;
+    }
+
+    private static long relevantMask(int square, int[][] directions) {
+        int row = square >>> 3;
+        int col = square & 7;
+        long mask = 0;
+
+        for (int[] direction : directions) {
+            int nextRow = row + direction[0];
+            int nextCol = col + direction[1];
+            // the last square of each ray never blocks anything beyond it, so leave it out
+            while (onBoard(nextRow + direction[0], nextCol + direction[1])) {
+                mask |= 1L << (nextRow * 8 + nextCol);
+                nextRow += direction[0];
+                nextCol += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks each ray one square at a time; only used to fill the tables
+     */
+    static long slowAttacks(int square, long occupied, int[][] directions) {
+        int row = square >>> 3;
+        int col = square & 7;
+        long attacks = 0;
+
+        for (int[] direction : directions) {
+            int nextRow = row + direction[0];
+            int nextCol = col + direction[1];
+            while (onBoard(nextRow, nextCol)) {
+                long bit = 1L << (nextRow * 8 + nextCol);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                nextRow += direction[0];
+                nextCol += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+
+    private static long nextRandom() {
+        // xorshift64*
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+
+    private static long nextSparseRandom() {
+        return nextRandom() & nextRandom() & nextRandom();
+    }
+}
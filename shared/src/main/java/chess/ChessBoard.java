@@ -11,8 +11,49 @@ import java.util.Arrays;
 public class ChessBoard {
     private final ChessPiece[][] board;
 
+    // Everything below is derived from the grid, so it is transient: serialized boards
+    // carry only the pieces, and a board Gson fills in rebuilds the rest on first use.
+
+    // one mask per color and piece type, indexed by pieceIndex(color, type)
+    // bit (row - 1) * 8 + (col - 1) is set when that square holds the piece
+    private final transient long[] pieceBitboards;
+    private final transient long[] colorOccupancy;
+    private transient long occupied;
+
+    // XOR of Zobrist.piece for every piece on the board, kept current by setSquare
+    private transient long pieceKey;
+
+    // sums of PieceSquareTables values and phase weights, also kept current by setSquare
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
+
+    // false until the fields above match the grid; the constructor Gson calls leaves it false
+    private transient boolean indexed;
+
     public ChessBoard() {
         this.board = new ChessPiece[8][8];
+        this.pieceBitboards = new long[12];
+        this.colorOccupancy = new long[2];
+    }
+
+    /**
+     * Creates an independent copy of another board
+     */
+    public ChessBoard(ChessBoard other) {
+        other.ensureIndexed();
+        this.board = new ChessPiece[8][];
+        for (int i = 0; i < 8; i++) {
+            this.board[i] = other.board[i].clone();
+        }
+        this.pieceBitboards = other.pieceBitboards.clone();
+        this.colorOccupancy = other.colorOccupancy.clone();
+        this.occupied = other.occupied;
+        this.pieceKey = other.pieceKey;
+        this.midgameScore = other.midgameScore;
+        this.endgameScore = other.endgameScore;
+        this.phase = other.phase;
+        this.indexed = true;
     }
 
     /**
@@ -23,7 +64,7 @@ public class ChessBoard {
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
         //throw new RuntimeException("Not implemented");
-        board[position.getRow() - 1][position.getColumn() - 1] = piece;
+        setSquare(squareIndex(position.getRow(), position.getColumn()), piece);
     }
 
     /**
@@ -41,56 +82,212 @@ public class ChessBoard {
     }
 
     /**
-     * Sets the board to the default starting board
-     * (How the game of chess normally starts)
+     * Gets a chess piece on the chessboard by square index
+     *
+     * @param square index from 0 (row 1, column 1) to 63 (row 8, column 8)
+     * @return Either the piece on the square, or null if the square is empty
      */
-    public void resetBoard() {
-        // clear out board
+    public ChessPiece getPiece(int square) {
+        return board[square >>> 3][square & 7];
+    }
+
+    /**
+     * @return mask of every square holding a piece of the given color and type
+     */
+    public long getBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureIndexed();
+        return pieceBitboards[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return mask of every square holding a piece of the given color
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return colorOccupancy[color.ordinal()];
+    }
+
+    /**
+     * @return mask of every square holding a piece of either color
+     */
+    public long getOccupied() {
+        ensureIndexed();
+        return occupied;
+    }
+
+    /**
+     * @return Zobrist key of the piece placement alone (no side to move, castling or en passant)
+     */
+    public long getPieceKey() {
+        ensureIndexed();
+        return pieceKey;
+    }
+
+    /**
+     * @return material and piece-square score for a midgame, positive when white is ahead
+     */
+    public int getMidgameScore() {
+        ensureIndexed();
+        return midgameScore;
+    }
+
+    /**
+     * @return material and piece-square score for an endgame, positive when white is ahead
+     */
+    public int getEndgameScore() {
+        ensureIndexed();
+        return endgameScore;
+    }
+
+    /**
+     * @return game phase from the pieces left, {@link PieceSquareTables#MAX_PHASE} at the start
+     */
+    public int getPhase() {
+        ensureIndexed();
+        return phase;
+    }
+
+    /**
+     * @return the square index (0-63) of a 1-based row and column
+     */
+    public static int squareIndex(int row, int col) {
+        return ((row - 1) << 3) | (col - 1);
+    }
+
+    /**
+     * @return the bitboard slot (0-11) used for the given color and type
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    /**
+     * Places a piece (or null) on a square, keeping the grid and every mask in sync
+     */
+    void setSquare(int square, ChessPiece piece) {
+        ensureIndexed();
+        int row = square >>> 3;
+        int col = square & 7;
+        long bit = 1L << square;
+
+        // clear whatever was there before
+        ChessPiece old = board[row][col];
+        if (old != null) {
+            int index = pieceIndex(old.getTeamColor(), old.getPieceType());
+            pieceBitboards[index] &= ~bit;
+            pieceKey ^= Zobrist.piece(index, square);
+            colorOccupancy[old.getTeamColor().ordinal()] &= ~bit;
+            occupied &= ~bit;
+            midgameScore -= PieceSquareTables.midgame(index, square);
+            endgameScore -= PieceSquareTables.endgame(index, square);
+            phase -= PieceSquareTables.phaseWeight(index);
+        }
+
+        board[row][col] = piece;
+        if (piece != null) {
+            int index = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            pieceBitboards[index] |= bit;
+            pieceKey ^= Zobrist.piece(index, square);
+            colorOccupancy[piece.getTeamColor().ordinal()] |= bit;
+            occupied |= bit;
+            midgameScore += PieceSquareTables.midgame(index, square);
+            endgameScore += PieceSquareTables.endgame(index, square);
+            phase += PieceSquareTables.phaseWeight(index);
+        }
+    }
+
+    /**
+     * Removes every piece, leaving the board empty
+     */
+    void clear() {
         for (int i = 0; i < 8; i++) {
             for (int j = 0; j < 8; j++) {
                 board[i][j] = null;
             }
         }
+        Arrays.fill(pieceBitboards, 0L);
+        Arrays.fill(colorOccupancy, 0L);
+        occupied = 0L;
+        pieceKey = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        indexed = true;
+    }
 
-        //System.out.print(showBoard(board));
-
-        for (int i = 0; i < 4; i++) {
-            if (i == 0) {
-                // populate BLACK special pieces
-                board[7][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-                board[7][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-                board[7][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-                board[7][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-                board[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-                board[7][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-                board[7][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-                board[7][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-            }
-            if (i == 1) {
-                // populate BLACK pawns
-                for (int j = 0; j < 8; j++) {
-                    board[6][j] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-                }
+    /**
+     * Builds the masks, key and sums from the grid if they have not been yet, e.g. after
+     * Gson filled in only the grid
+     */
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        ChessPiece[][] grid = new ChessPiece[8][];
+        for (int i = 0; i < 8; i++) {
+            grid[i] = board[i].clone();
+        }
+        clear();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = grid[square >>> 3][square & 7];
+            if (piece != null) {
+                setSquare(square, piece);
             }
+        }
+    }
 
-            if (i == 2) {
-                // populate WHITE pawns
-                for (int j = 0; j < 8; j++) {
-                    board[1][j] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-                }
-            }
-            if (i == 3) {
-                // populate WHITE special pieces
-                board[0][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-                board[0][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-                board[0][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-                board[0][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-                board[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-                board[0][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-                board[0][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-                board[0][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+    /**
+     * Recomputes the evaluation sums from the piece masks. {@link ChessGame#setBoard}
+     * calls this on the board it is handed, so the game's incremental evaluation starts
+     * from sums that match the pieces however the board was built.
+     */
+    void rescanScores() {
+        ensureIndexed();
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        for (int index = 0; index < pieceBitboards.length; index++) {
+            long pieces = pieceBitboards[index];
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                midgameScore += PieceSquareTables.midgame(index, square);
+                endgameScore += PieceSquareTables.endgame(index, square);
+                phase += PieceSquareTables.phaseWeight(index);
             }
         }
+    }
+
+    /**
+     * Sets the board to the default starting board
+     * (How the game of chess normally starts)
+     */
+    public void resetBoard() {
+        // clear out board
+        clear();
+
+        //System.out.print(showBoard(board));
+
+        ChessPiece.PieceType[] backRank = {
+                ChessPiece.PieceType.ROOK,
+                ChessPiece.PieceType.KNIGHT,
+                ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN,
+                ChessPiece.PieceType.KING,
+                ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT,
+                ChessPiece.PieceType.ROOK
+        };
+
+        for (int j = 0; j < 8; j++) {
+            // populate BLACK special pieces and pawns
+            setSquare(squareIndex(8, j + 1), ChessPiece.of(ChessGame.TeamColor.BLACK, backRank[j]));
+            setSquare(squareIndex(7, j + 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+
+            // populate WHITE pawns and special pieces
+            setSquare(squareIndex(2, j + 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            setSquare(squareIndex(1, j + 1), ChessPiece.of(ChessGame.TeamColor.WHITE, backRank[j]));
+        }
         //System.out.print(showBoard(board));
         //throw new RuntimeException("Not implemented");
     }
@@ -152,11 +349,16 @@ public class ChessBoard {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ChessBoard that = (ChessBoard) o;
-        return Arrays.deepEquals(board, that.board);
+        ensureIndexed();
+        that.ensureIndexed();
+        // the masks fully describe the grid, so comparing 12 longs is enough
+        return Arrays.equals(pieceBitboards, that.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        // maintained as pieces move, so this never walks the board
+        ensureIndexed();
+        return Long.hashCode(pieceKey);
     }
 }
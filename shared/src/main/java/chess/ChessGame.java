@@ -1,6 +1,8 @@
 package chess;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -10,11 +12,71 @@ import java.util.Collection;
  */
 public class ChessGame {
 
+    // castling rights, stored as a bit set
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    // rights that survive a move touching each square; anything leaving or landing on
+    // a king or rook home square drops the matching rights
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[ChessBoard.squareIndex(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[ChessBoard.squareIndex(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[ChessBoard.squareIndex(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[ChessBoard.squareIndex(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[ChessBoard.squareIndex(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[ChessBoard.squareIndex(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
+
+    // low bits of an undo record holding the packed move
+    private static final long UNDO_MOVE_MASK = (1L << 19) - 1;
+
     private TeamColor teamTurn;
     private ChessBoard board;
 
+    private int castlingRights;
+    // square a pawn could capture onto en passant this turn, or -1
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+
+    // Zobrist keys for side to move, castling and en passant; the board keeps the piece part
+    private long stateKey;
+
+    // undo stack for unmakeMove: one packed record and one full position key per move made.
+    // transient so serialized games carry only the position, not its history
+    private transient long[] undoRecords;
+    private transient long[] undoKeys;
+    private transient int undoSize;
+
     public ChessGame() {
+        ChessBoard startingBoard = new ChessBoard();
+        startingBoard.resetBoard();
+        this.teamTurn = TeamColor.WHITE;
+        setBoard(startingBoard);
+    }
 
+    /**
+     * Creates an independent copy of another game, including the moves it can take back,
+     * e.g. so several threads can search the same position
+     */
+    public ChessGame(ChessGame other) {
+        this.teamTurn = other.teamTurn;
+        this.board = new ChessBoard(other.board);
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.stateKey = other.stateKey;
+        if (other.undoRecords != null) {
+            this.undoRecords = other.undoRecords.clone();
+            this.undoKeys = other.undoKeys.clone();
+        }
+        this.undoSize = other.undoSize;
     }
 
     /**
@@ -32,6 +94,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         teamTurn = team;
+        stateKey = computeStateKey();
         //throw new RuntimeException("Not implemented");
     }
 
@@ -51,9 +114,19 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
+        int from = ChessBoard.squareIndex(startPosition.getRow(), startPosition.getColumn());
+        if (board.getPiece(from) == null) {
+            return null;
+        }
 
+        MoveList moves = new MoveList();
+        MoveGenerator.generate(this, board.getPiece(from).getTeamColor(), from, moves);
 
-        throw new RuntimeException("Not implemented");
+        Collection<ChessMove> validMoves = new HashSet<>();
+        for (int i = 0; i < moves.size(); i++) {
+            validMoves.add(PackedMove.toChessMove(moves.get(i)));
+        }
+        return validMoves;
     }
 
     /**
@@ -63,9 +136,28 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
+        ChessPosition start = move.getStartPosition();
+        int from = ChessBoard.squareIndex(start.getRow(), start.getColumn());
+        ChessPiece piece = board.getPiece(from);
 
+        if (piece == null) {
+            throw new InvalidMoveException("No piece at " + start.getRow() + "," + start.getColumn());
+        }
+        if (piece.getTeamColor() != teamTurn) {
+            throw new InvalidMoveException("It is " + teamTurn + "'s turn");
+        }
 
-        throw new RuntimeException("Not implemented");
+        // look the move up among the legal ones so it picks up its castle / en passant flags
+        int requested = PackedMove.fromChessMove(move);
+        MoveList moves = new MoveList();
+        MoveGenerator.generate(this, teamTurn, from, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (PackedMove.withoutFlags(moves.get(i)) == requested) {
+                makeMove(moves.get(i));
+                return;
+            }
+        }
+        throw new InvalidMoveException("Illegal move " + move);
     }
 
     /**
@@ -75,9 +167,19 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
+        return isInCheck(board, teamColor);
+    }
 
-
-        throw new RuntimeException("Not implemented");
+    /**
+     * Determines if any piece of the given team could capture on a square,
+     * e.g. to check that a king does not castle through an attacked square
+     *
+     * @param position the square to test; it may be empty or occupied by either team
+     * @param attacker the team whose pieces might be attacking it
+     * @return True if the square is attacked by the given team
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor attacker) {
+        return isAttacked(board, ChessBoard.squareIndex(position.getRow(), position.getColumn()), attacker);
     }
 
     /**
@@ -87,9 +189,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-
-
-        throw new RuntimeException("Not implemented");
+        return isInCheck(teamColor) && !hasLegalMove(teamColor);
     }
 
     /**
@@ -100,18 +200,27 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-
-
-        throw new RuntimeException("Not implemented");
+        return !isInCheck(teamColor) && !hasLegalMove(teamColor);
     }
 
     /**
      * Sets this game's chessboard with a given board
+     * <p>
+     * Castling rights are taken from the board: a side keeps the right to castle
+     * toward each rook still standing on its home square next to a king on its home
+     * square. En passant and the move clocks start over.
      *
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        board.rescanScores();
+        this.castlingRights = inferCastlingRights(board);
+        this.enPassantSquare = -1;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+        this.stateKey = computeStateKey();
+        this.undoSize = 0;
         //throw new RuntimeException("Not implemented");
     }
 
@@ -124,4 +233,310 @@ public class ChessGame {
         return board;
         //throw new RuntimeException("Not implemented");
     }
+
+    /**
+     * @param fen position in Forsyth-Edwards Notation; the move clocks may be left off
+     * @return a new game set up at that position
+     * @throws IllegalArgumentException if the text is not a valid FEN
+     * @see Fen
+     */
+    public static ChessGame fromFen(CharSequence fen) {
+        ChessGame game = new ChessGame();
+        Fen.parse(fen, game);
+        return game;
+    }
+
+    /**
+     * @return the current position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        return Fen.toFen(this);
+    }
+
+    /**
+     * @return 64-bit Zobrist key of the position: piece placement, side to move,
+     * castling rights and en passant file. Equal positions have equal keys.
+     */
+    public long getZobristKey() {
+        return board.getPieceKey() ^ stateKey;
+    }
+
+    /**
+     * Static evaluation of the position: material and piece-square scores blended between
+     * midgame and endgame by how much material is left. The board keeps both sums current
+     * as moves are made and taken back, so this costs the same at any point in a search.
+     *
+     * @return score in centipawns for the side to move, positive when it is ahead
+     */
+    public int evaluate() {
+        int score = PieceSquareTables.taper(board.getMidgameScore(), board.getEndgameScore(), board.getPhase());
+        return teamTurn == TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * @return bit set of {@link #WHITE_KINGSIDE}, {@link #WHITE_QUEENSIDE},
+     * {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return square (0-63) a pawn may capture onto en passant this turn, or -1
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * @return moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return number of the current full move, starting at 1 and going up after black moves
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Overwrites the parts of the position the board itself does not hold,
+     * for loaders that know more than {@link #setBoard(ChessBoard)} can infer.
+     */
+    void setPositionState(int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.stateKey = computeStateKey();
+        this.undoSize = 0;
+    }
+
+    /**
+     * Makes a move given as a {@link PackedMove} without checking that it is legal.
+     * The move must come from this game's own move generation (so it carries its
+     * castle / en passant / double push flags) and must be legal in the current position.
+     * <p>
+     * The board is changed in place and an undo record is pushed, so
+     * {@link #unmakeMove()} can restore the position exactly.
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece piece = board.getPiece(from);
+        boolean enPassant = PackedMove.hasFlag(move, PackedMove.EN_PASSANT);
+        ChessPiece captured = enPassant
+                ? ChessPiece.of(opponent(piece.getTeamColor()), ChessPiece.PieceType.PAWN)
+                : board.getPiece(to);
+
+        pushUndo(move, captured);
+
+        // move the pieces, including the rook for castling and the pawn taken en passant
+        if (enPassant) {
+            board.setSquare((from & ~7) | (to & 7), null);
+        }
+        if (PackedMove.hasFlag(move, PackedMove.CASTLE)) {
+            board.setSquare(rookTo(from, to), board.getPiece(rookFrom(from, to)));
+            board.setSquare(rookFrom(from, to), null);
+        }
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        board.setSquare(to, promotion == null ? piece : ChessPiece.of(piece.getTeamColor(), promotion));
+        board.setSquare(from, null);
+
+        int newRights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        int newEnPassant = -1;
+        if (PackedMove.hasFlag(move, PackedMove.DOUBLE_PUSH)) {
+            int passed = (from + to) >>> 1;
+            // only worth remembering if an enemy pawn is actually there to take it
+            TeamColor opponent = opponent(piece.getTeamColor());
+            if ((AttackTables.pawnAttacks(piece.getTeamColor(), passed)
+                    & board.getBitboard(opponent, ChessPiece.PieceType.PAWN)) != 0) {
+                newEnPassant = passed;
+            }
+        }
+
+        stateKey ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(newRights);
+        stateKey ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(newEnPassant);
+        stateKey ^= Zobrist.blackToMove();
+
+        castlingRights = newRights;
+        enPassantSquare = newEnPassant;
+        halfmoveClock = (captured != null || piece.getPieceType() == ChessPiece.PieceType.PAWN) ? 0 : halfmoveClock + 1;
+        if (teamTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        teamTurn = opponent(teamTurn);
+    }
+
+    /**
+     * Takes back the most recent move made with either makeMove overload,
+     * restoring the board, turn, castling rights, en passant square, clocks and key.
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        undoSize--;
+        long record = undoRecords[undoSize];
+        int move = (int) (record & UNDO_MOVE_MASK);
+        int capturedIndex = (int) ((record >>> 19) & 15);
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        teamTurn = opponent(teamTurn);
+        ChessPiece moved = PackedMove.isPromotion(move)
+                ? ChessPiece.of(teamTurn, ChessPiece.PieceType.PAWN)
+                : board.getPiece(to);
+        ChessPiece captured = capturedIndex == 0 ? null : pieceFromIndex(capturedIndex - 1);
+
+        board.setSquare(from, moved);
+        if (PackedMove.hasFlag(move, PackedMove.EN_PASSANT)) {
+            board.setSquare(to, null);
+            board.setSquare((from & ~7) | (to & 7), captured);
+        } else {
+            board.setSquare(to, captured);
+        }
+        if (PackedMove.hasFlag(move, PackedMove.CASTLE)) {
+            board.setSquare(rookFrom(from, to), board.getPiece(rookTo(from, to)));
+            board.setSquare(rookTo(from, to), null);
+        }
+
+        castlingRights = (int) ((record >>> 23) & 15);
+        enPassantSquare = (int) ((record >>> 27) & 127) - 1;
+        halfmoveClock = (int) ((record >>> 34) & 0xFFFF);
+        if (teamTurn == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        // the saved key is the whole position; the board already holds its piece part again
+        stateKey = undoKeys[undoSize] ^ board.getPieceKey();
+    }
+
+    /**
+     * Appends every legal move for the team whose turn it is, without allocating.
+     * Moves are {@link PackedMove} ints that can be passed straight to {@link #makeMove(int)}.
+     *
+     * @param moves list the moves are appended to; it is not cleared first
+     * @return number of moves appended
+     */
+    public int legalMoves(MoveList moves) {
+        return MoveGenerator.generate(this, teamTurn, -1, moves);
+    }
+
+    /**
+     * @return how many moves {@link #unmakeMove()} can currently take back
+     */
+    public int getUndoDepth() {
+        return undoSize;
+    }
+
+    /**
+     * Looks back through the moves on the undo stack, as far as the last capture or pawn
+     * move (nothing before those can repeat), for an earlier visit to the current position
+     *
+     * @return True if the current position has occurred before
+     */
+    public boolean isRepetition() {
+        long key = getZobristKey();
+        int oldest = Math.max(0, undoSize - halfmoveClock);
+        // same side to move means an even number of plies back
+        for (int i = undoSize - 2; i >= oldest; i -= 2) {
+            if (undoKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Saves everything makeMove changes that cannot be recomputed from the move itself.
+     * <pre>
+     *   bits  0-18  the packed move, flags included
+     *   bits 19-22  captured piece index + 1, or 0
+     *   bits 23-26  castling rights before the move
+     *   bits 27-33  en passant square + 1 before the move
+     *   bits 34-49  halfmove clock before the move
+     * </pre>
+     */
+    private void pushUndo(int move, ChessPiece captured) {
+        if (undoRecords == null) {
+            undoRecords = new long[64];
+            undoKeys = new long[64];
+        } else if (undoSize == undoRecords.length) {
+            undoRecords = Arrays.copyOf(undoRecords, undoSize * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoSize * 2);
+        }
+
+        long capturedIndex = captured == null ? 0 : ChessBoard.pieceIndex(captured.getTeamColor(), captured.getPieceType()) + 1;
+        undoRecords[undoSize] = (move & UNDO_MOVE_MASK)
+                | (capturedIndex << 19)
+                | ((long) castlingRights << 23)
+                | ((long) (enPassantSquare + 1) << 27)
+                | ((long) Math.min(halfmoveClock, 0xFFFF) << 34);
+        undoKeys[undoSize] = getZobristKey();
+        undoSize++;
+    }
+
+    private static int rookFrom(int kingFrom, int kingTo) {
+        return kingTo > kingFrom ? kingFrom + 3 : kingFrom - 4;
+    }
+
+    private static int rookTo(int kingFrom, int kingTo) {
+        return kingTo > kingFrom ? kingFrom + 1 : kingFrom - 1;
+    }
+
+    private static ChessPiece pieceFromIndex(int pieceIndex) {
+        return ChessPiece.of(TeamColor.values()[pieceIndex / 6], ChessPiece.PieceType.values()[pieceIndex % 6]);
+    }
+
+    private boolean hasLegalMove(TeamColor teamColor) {
+        return MoveGenerator.generate(this, teamColor, -1, new MoveList()) > 0;
+    }
+
+    private static boolean isInCheck(ChessBoard board, TeamColor teamColor) {
+        long king = board.getBitboard(teamColor, ChessPiece.PieceType.KING);
+        return king != 0 && isAttacked(board, Long.numberOfTrailingZeros(king), opponent(teamColor));
+    }
+
+    /**
+     * Works outward from the square: a knight/king/pawn of the attacking team stands on
+     * one of that piece's attack squares, or a rook/bishop/queen sits at the end of a
+     * clear ray. Every probe is one table lookup and one mask test.
+     *
+     * @return true if any piece of the attacking team could capture on the square
+     */
+    private static boolean isAttacked(ChessBoard board, int square, TeamColor attacker) {
+        return MoveGenerator.attackers(board, square, attacker, board.getOccupied()) != 0;
+    }
+
+    private static int inferCastlingRights(ChessBoard board) {
+        int rights = 0;
+        ChessPiece whiteKing = ChessPiece.of(TeamColor.WHITE, ChessPiece.PieceType.KING);
+        ChessPiece whiteRook = ChessPiece.of(TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        ChessPiece blackKing = ChessPiece.of(TeamColor.BLACK, ChessPiece.PieceType.KING);
+        ChessPiece blackRook = ChessPiece.of(TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+
+        if (whiteKing.equals(board.getPiece(ChessBoard.squareIndex(1, 5)))) {
+            if (whiteRook.equals(board.getPiece(ChessBoard.squareIndex(1, 8)))) rights |= WHITE_KINGSIDE;
+            if (whiteRook.equals(board.getPiece(ChessBoard.squareIndex(1, 1)))) rights |= WHITE_QUEENSIDE;
+        }
+        if (blackKing.equals(board.getPiece(ChessBoard.squareIndex(8, 5)))) {
+            if (blackRook.equals(board.getPiece(ChessBoard.squareIndex(8, 8)))) rights |= BLACK_KINGSIDE;
+            if (blackRook.equals(board.getPiece(ChessBoard.squareIndex(8, 1)))) rights |= BLACK_QUEENSIDE;
+        }
+        return rights;
+    }
+
+    private long computeStateKey() {
+        long key = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        return teamTurn == TeamColor.BLACK ? key ^ Zobrist.blackToMove() : key;
+    }
+
+    private static TeamColor opponent(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
 }
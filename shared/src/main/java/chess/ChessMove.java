@@ -76,6 +76,8 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        // position hashes are below 81 on the board, so this packs like a PackedMove
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return (Objects.hashCode(startPosition) * 81 + Objects.hashCode(endPosition)) * 8 + promotion;
     }
 }
@@ -2,7 +2,6 @@ package chess;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Objects;
 
 /**
  * Represents a single chess piece
@@ -12,6 +11,17 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    // one shared instance per color and type, indexed by ChessBoard.pieceIndex
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[ChessBoard.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor color;
     private final PieceType type;
 
@@ -20,6 +30,14 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Returns the shared instance for a color and type instead of allocating a new one.
+     * Pieces are immutable, so the same instance can sit on any number of boards.
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[ChessBoard.pieceIndex(pieceColor, type)];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -30,7 +48,8 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(color, type);
+        // 0-11 for real pieces, matching ChessBoard.pieceIndex
+        return color.ordinal() * 6 + type.ordinal();
     }
 
     /**
@@ -61,283 +80,95 @@ public class ChessPiece {
         //throw new RuntimeException("Not implemented");
     }
 
-    private Collection<ChessMove> findLinearMoves(ChessBoard board, ChessPosition myPosition, int rowDirection, int colDirection) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        ArrayList<ChessMove> possibleMoves = new ArrayList<>();
-
-        // loop through all squares in a straight line
-        for (int i = 1; i < 8; i++) {
-            int nextRow = row + i * rowDirection;
-            int nextCol = col + i * colDirection;
-
-            // check if the position is valid
-            if (inValid(nextRow, nextCol)) {
-                break;
-            }
-
-            // position is valid, make ChessPosition class at location
-            ChessPosition nextPosition = new ChessPosition(nextRow, nextCol);
-
-            // check if there's a piece on the next square
-            ChessPiece piece = board.getPiece(nextPosition);
+    /**
+     * Calculates all the positions a chess piece can move to
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
+     *
+     * @return Collection of valid moves
+     */
+    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        MoveList moves = new MoveList();
+        int count = pieceMoves(board, ChessBoard.squareIndex(myPosition.getRow(), myPosition.getColumn()), moves);
 
-            if (piece == null) { // new square is empty, add move to possibleMoves list
-                possibleMoves.add(new ChessMove(myPosition, nextPosition, null));
-            } else { // new square is occupied by an...
-                if (piece.getTeamColor() != this.getTeamColor()) {  // ...opponent, add move to list
-                    possibleMoves.add(new ChessMove(myPosition, nextPosition, null));
-                    break;
-                } else { // ...ally, do not add to list
-                    break;
-                }
-            }
+        Collection<ChessMove> validMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            validMoves.add(PackedMove.toChessMove(moves.get(i)));
         }
-        return possibleMoves;
+        return validMoves;
     }
 
-    private ChessMove findMove(ChessBoard board, ChessPosition myPosition, int rowDirection, int colDirection) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        int nextRow = row + rowDirection;
-        int nextCol = col + colDirection;
+    /**
+     * Allocation-free version of {@link #pieceMoves(ChessBoard, ChessPosition)}.
+     * Appends each move as a {@link PackedMove} to the caller's list.
+     * Like the collection version, it ignores check, castling and en passant.
+     *
+     * @param square the square this piece stands on (0-63)
+     * @param moves  list the moves are appended to; it is not cleared first
+     * @return number of moves appended
+     */
+    public int pieceMoves(ChessBoard board, int square, MoveList moves) {
+        int before = moves.size();
+        long own = board.getOccupancy(this.color);
+        long occupied = board.getOccupied();
 
-        // check if the position is valid
-        if (inValid(nextRow, nextCol)) {
-            return null;
+        switch (this.type) {
+            case KING -> addTargets(moves, square, AttackTables.kingAttacks(square) & ~own, occupied);
+            case QUEEN -> addTargets(moves, square, AttackTables.queenAttacks(square, occupied) & ~own, occupied);
+            case BISHOP -> addTargets(moves, square, AttackTables.bishopAttacks(square, occupied) & ~own, occupied);
+            case KNIGHT -> addTargets(moves, square, AttackTables.knightAttacks(square) & ~own, occupied);
+            case ROOK -> addTargets(moves, square, AttackTables.rookAttacks(square, occupied) & ~own, occupied);
+            case PAWN -> addPawnMoves(moves, square, board, occupied);
         }
+        return moves.size() - before;
+    }
 
-        // position is valid, make ChessPosition class at location
-        ChessPosition nextPosition = new ChessPosition(nextRow, nextCol);
-        // check if there's already a piece there
-        ChessPiece piece = board.getPiece(nextPosition);
-
-        if (piece == null) { // new square is empty, add move to possibleMoves list
-            return new ChessMove(myPosition, nextPosition, null);
-        } else { // new square is occupied by an...
-            if (piece.getTeamColor() != this.getTeamColor()) {  // ...opponent, add move to list
-                return new ChessMove(myPosition, nextPosition, null);
-            } else { // ...ally, do not add to list
-                return null;
-            }
+    private static void addTargets(MoveList moves, int from, long targets, long occupied) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (occupied & (1L << to)) != 0 ? PackedMove.CAPTURE : 0;
+            moves.add(PackedMove.of(from, to) | flags);
         }
     }
 
-    private Collection<ChessMove> findPawnMoves(ChessBoard board, ChessPosition myPosition, int rowDirection, int colDirection) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        ArrayList<ChessMove> possibleMoves = new ArrayList<>();
+    private void addPawnMoves(MoveList moves, int from, ChessBoard board, long occupied) {
+        boolean white = this.color == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        int startRow = white ? 1 : 6;
+        int to = from + forward;
 
-        int nextRow = row + rowDirection;
-        int nextCol = col + colDirection;
+        // forward squares, the extra square only from the starting row
+        if (to >= 0 && to < 64 && (occupied & (1L << to)) == 0) {
+            addPawnMove(moves, from, to, 0);
 
-        // check if the position is valid
-        if (inValid(nextRow, nextCol)) {
-            return new ArrayList<>(); // returns an empty list, should get filtered out by the .addAll call
-        }
-
-        // position is valid, make ChessPosition class at location
-        ChessPosition nextPosition = new ChessPosition(nextRow, nextCol);
-        // check if there's already a piece there
-        ChessPiece piece = board.getPiece(nextPosition);
-
-        if (colDirection != 0) { // diagonal square
-            if (piece != null) { // new square is occupied by a...
-                if (piece.getTeamColor() != this.getTeamColor()) {  // ...opponent, add move to list
-                    if (promotePawn(nextPosition)) {
-                        possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.QUEEN));
-                        possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.ROOK));
-                        possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.KNIGHT));
-                        possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.BISHOP));
-                    } else possibleMoves.add(new ChessMove(myPosition, nextPosition, null));
-                } else return new ArrayList<>(); // ally, return an empty list
+            int extra = to + forward;
+            if ((from >>> 3) == startRow && (occupied & (1L << extra)) == 0) {
+                moves.add(PackedMove.of(from, extra) | PackedMove.DOUBLE_PUSH);
             }
         }
 
-        if (colDirection == 0) { // forward square
-            if (piece == null) { // new square is empty, add to list
-                if (promotePawn(nextPosition)) {
-                    possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.QUEEN));
-                    possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.ROOK));
-                    possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.KNIGHT));
-                    possibleMoves.add(new ChessMove(myPosition, nextPosition, PieceType.BISHOP));
-                } else possibleMoves.add(new ChessMove(myPosition, nextPosition, null));
-
-                if (firstMove(myPosition)) {  // first move check
-                    if (this.color == ChessGame.TeamColor.WHITE) {
-                        ChessPosition extraPosition = new ChessPosition(row + 2, col);
-                        // check if there's already a piece there
-                        ChessPiece extraPiece = board.getPiece(extraPosition);
-
-                        if (extraPiece == null) { // extra square is empty, add to list
-                            possibleMoves.add(new ChessMove(myPosition, extraPosition, null));
-                        }
-                    }
-                    if (this.color == ChessGame.TeamColor.BLACK) {
-                        ChessPosition extraPosition = new ChessPosition(row - 2, col);
-                        // check if there's already a piece there
-                        ChessPiece extraPiece = board.getPiece(extraPosition);
-
-                        if (extraPiece == null) { // extra square is empty, add to list
-                            possibleMoves.add(new ChessMove(myPosition, extraPosition, null));
-                        }
-                    }
-                }
-            }
+        // diagonal squares, only when capturing an opponent
+        long captures = AttackTables.pawnAttacks(this.color, from) & board.getOccupancy(opponent(this.color));
+        while (captures != 0) {
+            addPawnMove(moves, from, Long.numberOfTrailingZeros(captures), PackedMove.CAPTURE);
+            captures &= captures - 1;
         }
-        return possibleMoves;
-    }
-
-    private boolean inValid(int nextRow, int nextCol) {
-        return nextRow <= 0 || nextRow > 8 || nextCol <= 0 || nextCol > 8;
     }
 
-    private boolean firstMove(ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        boolean isFirst = false;
-        ChessGame.TeamColor color = getTeamColor();
-
-        // check color and position
-        if (color == ChessGame.TeamColor.WHITE && row == 2) {
-            isFirst = true;
-        } else if (color == ChessGame.TeamColor.BLACK && row == 7) {
-            isFirst = true;
+    private static void addPawnMove(MoveList moves, int from, int to, int flags) {
+        int row = to >>> 3;
+        if (row == 0 || row == 7) { // pawn reached the far end, one move per promotion choice
+            moves.add(PackedMove.of(from, to, PieceType.QUEEN, flags));
+            moves.add(PackedMove.of(from, to, PieceType.ROOK, flags));
+            moves.add(PackedMove.of(from, to, PieceType.KNIGHT, flags));
+            moves.add(PackedMove.of(from, to, PieceType.BISHOP, flags));
+        } else {
+            moves.add(PackedMove.of(from, to) | flags);
         }
-
-        return isFirst;
     }
 
-    private boolean promotePawn(ChessPosition possiblePosition) {
-        int row = possiblePosition.getRow();
-        return row == 1 || row == 8;
-    }
-
-    /**
-     * Calculates all the positions a chess piece can move to
-     * Does not take into account moves that are illegal due to leaving the king in
-     * danger
-     *
-     * @return Collection of valid moves
-     */
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-
-        Collection<ChessMove> validMoves = new ArrayList<>();
-
-        switch (this.type) {
-            case KING -> {
-                int[][] directions = {
-                        {1, 0}, // North
-                        {1, 1},   // North East
-                        {0, 1}, // East
-                        {-1, 1},  // South East
-                        {-1, 0}, // South
-                        {-1, -1}, // South West
-                        {0, -1},  // West
-                        {1, -1}   // North West
-                };
-
-                // loop through all possible directions
-                for (int[] direction : directions) {
-                    ChessMove possibleMove = findMove(board, myPosition, direction[0], direction[1]);
-                    if (possibleMove != null) {
-                        validMoves.add(possibleMove);
-                    }
-                }
-            }
-            case QUEEN -> {
-                int[][] directions = {
-                        {1, 0}, // North
-                        {1, 1},   // North East
-                        {0, 1}, // East
-                        {-1, 1},  // South East
-                        {-1, 0}, // South
-                        {-1, -1}, // South West
-                        {0, -1},  // West
-                        {1, -1}   // North West
-                };
-
-                // loop through all possible directions
-                for (int[] direction : directions) {
-                    validMoves.addAll(findLinearMoves(board, myPosition, direction[0], direction[1]));
-                }
-            }
-            case BISHOP -> {
-                int[][] directions = {
-                        {1, 1},   // North East
-                        {-1, 1},  // South East
-                        {-1, -1}, // South West
-                        {1, -1}   // North West
-                };
-
-                // loop through all possible directions
-                for (int[] direction : directions) {
-                    validMoves.addAll(findLinearMoves(board, myPosition, direction[0], direction[1]));
-                }
-            }
-            case KNIGHT -> {
-                int[][] directions = {
-                        {2, 1},
-                        {1, 2},
-                        {-1, 2},
-                        {-2, 1},
-                        {-2, -1},
-                        {-1, -2},
-                        {1, -2},
-                        {2, -1}
-                };
-
-                // loop through all possible directions
-                for (int[] direction : directions) {
-                    ChessMove possibleMove = findMove(board, myPosition, direction[0], direction[1]);
-                    if (possibleMove != null) {
-                        validMoves.add(possibleMove);
-                    }
-                }
-
-            }
-            case ROOK -> {
-                int[][] directions = {
-                        {1, 0}, // North
-                        {0, 1}, // East
-                        {-1, 0}, // South
-                        {0, -1},  // West
-                };
-
-                // loop through all possible directions
-                for (int[] direction : directions) {
-                    validMoves.addAll(findLinearMoves(board, myPosition, direction[0], direction[1]));
-                }
-            }
-            case PAWN -> {
-                switch (this.color) {
-                    case WHITE -> {
-                        int[][] directions = {
-                                {1, -1}, // North-West
-                                {1, 0}, // North
-                                {1, 1}, // North-East
-                        };
-                        for (int[] direction : directions)
-                            validMoves.addAll(findPawnMoves(board, myPosition, direction[0], direction[1]));
-                    }
-
-                    case BLACK -> {
-                        int[][] directions = {
-                                {-1, -1}, // North-West
-                                {-1, 0}, // North
-                                {-1, 1}, // North-East
-                        };
-                        for (int[] direction : directions)
-                            validMoves.addAll(findPawnMoves(board, myPosition, direction[0], direction[1]));
-                    }
-                }
-            }
-        }
-        return validMoves;
-        //throw new RuntimeException("Not implemented");
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
     }
-
-
 }
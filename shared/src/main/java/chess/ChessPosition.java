@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -10,6 +8,15 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    // one shared instance per square, indexed by ChessBoard.squareIndex
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +25,28 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Returns the shared instance for a square instead of allocating a new one.
+     * Positions off the board still get a fresh instance, same as the constructor.
+     *
+     * @param row 1-8, 1 codes for the bottom row
+     * @param col 1-8, 1 codes for the left column
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[ChessBoard.squareIndex(row, col)];
+    }
+
+    /**
+     * @param square index from 0 (row 1, column 1) to 63 (row 8, column 8)
+     * @return the shared instance for that square
+     */
+    public static ChessPosition of(int square) {
+        return POSITIONS[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -48,6 +77,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        // unique for every on-board square, and no varargs array or boxing
+        return row * 8 + col;
     }
 }
@@ -0,0 +1,323 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, e.g. the starting position
+ * <pre>
+ *   rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ * </pre>
+ * Fields are placement (rank 8 first), side to move, castling rights, en passant target
+ * and the halfmove / fullmove clocks. The two clocks may be left off, as they are in EPD
+ * files; they then default to 0 and 1.
+ * <p>
+ * The parser walks the text once, character by character, and writes straight into an
+ * existing game's board, so bulk imports reuse one game and allocate nothing per position.
+ */
+public final class Fen {
+
+    /**
+     * FEN of the standard starting position
+     */
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // FEN letter of each piece, indexed by ChessBoard.pieceIndex
+    private static final char[] SYMBOLS = "KQBNRPkqbnrp".toCharArray();
+
+    // piece for each ASCII letter, or null
+    private static final ChessPiece[] PIECE_BY_SYMBOL = new ChessPiece[128];
+
+    // one view per thread, pointed at each buffer in turn, so buffer parsing allocates nothing
+    private static final ThreadLocal<AsciiView> VIEWS = ThreadLocal.withInitial(AsciiView::new);
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECE_BY_SYMBOL[SYMBOLS[ChessBoard.pieceIndex(color, type)]] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    private Fen() {
+    }
+
+    /**
+     * Replaces the game's position with the one described, reusing its board and
+     * clearing its move history
+     *
+     * @throws IllegalArgumentException if the text is not a valid FEN; the game's
+     *                                  position is then left partly loaded
+     */
+    public static void parse(CharSequence fen, ChessGame into) {
+        parse(fen, 0, fen.length(), into);
+    }
+
+    /**
+     * Reads one FEN line from the buffer's position, e.g. from a memory-mapped file of
+     * positions, and leaves the buffer positioned after its line break
+     *
+     * @throws IllegalArgumentException if the line is not a valid FEN
+     */
+    public static void parse(ByteBuffer in, ChessGame into) {
+        int start = in.position();
+        int end = start;
+        while (end < in.limit() && in.get(end) != '\n') {
+            end++;
+        }
+        in.position(end < in.limit() ? end + 1 : end);
+        // drop the \r of a Windows line ending
+        if (end > start && in.get(end - 1) == '\r') {
+            end--;
+        }
+        AsciiView view = VIEWS.get();
+        view.buffer = in;
+        try {
+            parse(view, start, end, into);
+        } finally {
+            // don't keep a mapped file reachable from the thread
+            view.buffer = null;
+        }
+    }
+
+    /**
+     * @return the game's position as a FEN string
+     */
+    public static String toFen(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        append(game, fen);
+        return fen.toString();
+    }
+
+    /**
+     * Appends the game's position as FEN, so bulk exports can reuse one builder
+     */
+    public static void append(ChessGame game, StringBuilder out) {
+        ChessBoard board = game.getBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessBoard.squareIndex(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(SYMBOLS[ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType())]);
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                out.append('/');
+            }
+        }
+
+        out.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int rights = game.getCastlingRights();
+        if (rights == 0) {
+            out.append('-');
+        } else {
+            if ((rights & ChessGame.WHITE_KINGSIDE) != 0) out.append('K');
+            if ((rights & ChessGame.WHITE_QUEENSIDE) != 0) out.append('Q');
+            if ((rights & ChessGame.BLACK_KINGSIDE) != 0) out.append('k');
+            if ((rights & ChessGame.BLACK_QUEENSIDE) != 0) out.append('q');
+        }
+
+        int enPassant = game.getEnPassantSquare();
+        if (enPassant < 0) {
+            out.append(" -");
+        } else {
+            out.append(' ').append((char) ('a' + (enPassant & 7))).append((char) ('1' + (enPassant >>> 3)));
+        }
+
+        out.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+    }
+
+    private static void parse(CharSequence fen, int start, int end, ChessGame into) {
+        ChessBoard board = into.getBoard();
+        board.clear();
+
+        // placement
+        int i = skipSpaces(fen, start, end);
+        int row = 8;
+        int col = 1;
+        for (; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == ' ') {
+                break;
+            } else if (c == '/') {
+                if (col != 9 || row == 1) {
+                    throw invalid(fen, start, end, "rank " + row + " does not have 8 squares");
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                ChessPiece piece = c < PIECE_BY_SYMBOL.length ? PIECE_BY_SYMBOL[c] : null;
+                if (piece == null || col > 8) {
+                    throw invalid(fen, start, end, "unexpected '" + c + "' in placement");
+                }
+                board.setSquare(ChessBoard.squareIndex(row, col), piece);
+                col++;
+            }
+            if (col > 9) {
+                throw invalid(fen, start, end, "rank " + row + " has more than 8 squares");
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw invalid(fen, start, end, "placement does not cover 8 ranks of 8 squares");
+        }
+
+        // side to move
+        i = skipSpaces(fen, i, end);
+        if (i >= end) {
+            throw invalid(fen, start, end, "missing side to move");
+        }
+        ChessGame.TeamColor turn = switch (fen.charAt(i++)) {
+            case 'w' -> ChessGame.TeamColor.WHITE;
+            case 'b' -> ChessGame.TeamColor.BLACK;
+            default -> throw invalid(fen, start, end, "side to move must be 'w' or 'b'");
+        };
+
+        // castling rights
+        i = skipSpaces(fen, i, end);
+        int castling = 0;
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < end && fen.charAt(i) != ' '; i++) {
+                castling |= switch (fen.charAt(i)) {
+                    case 'K' -> ChessGame.WHITE_KINGSIDE;
+                    case 'Q' -> ChessGame.WHITE_QUEENSIDE;
+                    case 'k' -> ChessGame.BLACK_KINGSIDE;
+                    case 'q' -> ChessGame.BLACK_QUEENSIDE;
+                    default -> throw invalid(fen, start, end, "unexpected '" + fen.charAt(i) + "' in castling rights");
+                };
+            }
+        }
+
+        // en passant target
+        i = skipSpaces(fen, i, end);
+        int enPassant = -1;
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else if (i + 1 < end) {
+            char file = fen.charAt(i);
+            char rank = fen.charAt(i + 1);
+            if (file < 'a' || file > 'h' || (rank != '3' && rank != '6')) {
+                throw invalid(fen, start, end, "bad en passant square");
+            }
+            // the target is behind a pawn the side not to move just pushed
+            if (rank != (turn == ChessGame.TeamColor.WHITE ? '6' : '3')) {
+                throw invalid(fen, start, end, "en passant square on the wrong rank for " + turn);
+            }
+            enPassant = ChessBoard.squareIndex(rank - '0', file - 'a' + 1);
+            i += 2;
+        } else if (i < end) {
+            throw invalid(fen, start, end, "bad en passant square");
+        }
+
+        // optional clocks
+        i = skipSpaces(fen, i, end);
+        int halfmove = 0;
+        int fullmove = 1;
+        if (i < end) {
+            int digitsEnd = fieldEnd(fen, i, end);
+            halfmove = parseNumber(fen, i, digitsEnd, start, end);
+            i = skipSpaces(fen, digitsEnd, end);
+            if (i < end) {
+                digitsEnd = fieldEnd(fen, i, end);
+                fullmove = Math.max(1, parseNumber(fen, i, digitsEnd, start, end));
+                i = skipSpaces(fen, digitsEnd, end);
+            }
+        }
+        if (i < end) {
+            throw invalid(fen, start, end, "unexpected text after the move clocks");
+        }
+
+        into.setBoard(board);
+        into.setTeamTurn(turn);
+        // keep only what the board can back up: castling needs king and rook at home, and
+        // en passant is only recorded when a pawn to move is there to take it, as after makeMove
+        castling &= into.getCastlingRights();
+        if (enPassant >= 0 && (AttackTables.pawnAttacks(opponent(turn), enPassant)
+                & board.getBitboard(turn, ChessPiece.PieceType.PAWN)) == 0) {
+            enPassant = -1;
+        }
+        into.setPositionState(castling, enPassant, halfmove, fullmove);
+    }
+
+    private static int skipSpaces(CharSequence fen, int i, int end) {
+        while (i < end && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int fieldEnd(CharSequence fen, int i, int end) {
+        while (i < end && fen.charAt(i) != ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseNumber(CharSequence fen, int from, int to, int start, int end) {
+        if (to - from > 9) {
+            throw invalid(fen, start, end, "move clock out of range");
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9') {
+                throw invalid(fen, start, end, "move clock is not a number");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence fen, int start, int end, String reason) {
+        return new IllegalArgumentException("Invalid FEN \"" + fen.subSequence(start, end) + "\": " + reason);
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    /**
+     * Reads bytes of a buffer as ASCII characters, by absolute index
+     */
+    private static final class AsciiView implements CharSequence {
+
+        private ByteBuffer buffer;
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder text = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                text.append(charAt(i));
+            }
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of a {@link ChessGame}, for storage and the wire.
+ * <pre>
+ *   8 bytes   occupied mask, big-endian, bit n set for square n
+ *   n/2 bytes one nibble per occupied square in ascending square order, holding its
+ *             {@link ChessBoard#pieceIndex piece index}; an odd count pads the last low nibble
+ *   1 byte    bit 0 black to move, bits 1-4 castling rights
+ *   1 byte    en passant square + 1, or 0
+ *   2 bytes   halfmove clock
+ *   2 bytes   fullmove number
+ * </pre>
+ * A full 32 piece position takes {@link #MAX_GAME_BYTES} (30) bytes. Encoding and decoding
+ * work straight against the buffer's position and create no objects of their own;
+ * decoding into an existing game reuses its board. Bytes are checked before anything is
+ * written, so corrupt or cut-short input leaves the target untouched.
+ */
+public final class GameCodec {
+
+    /**
+     * Largest possible encoded board: the occupied mask plus 32 nibbles
+     */
+    public static final int MAX_BOARD_BYTES = 8 + 16;
+
+    /**
+     * Largest possible encoded game
+     */
+    public static final int MAX_GAME_BYTES = MAX_BOARD_BYTES + 6;
+
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[ChessBoard.pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    private GameCodec() {
+    }
+
+    /**
+     * @return exact number of bytes {@link #encode(ChessGame, ByteBuffer)} writes for this game
+     */
+    public static int encodedSize(ChessGame game) {
+        return boardSize(game.getBoard()) + 6;
+    }
+
+    /**
+     * @return exact number of bytes {@link #encodeBoard(ChessBoard, ByteBuffer)} writes for this board
+     */
+    public static int boardSize(ChessBoard board) {
+        return 8 + (Long.bitCount(board.getOccupied()) + 1) / 2;
+    }
+
+    /**
+     * Writes the game at the buffer's position and advances it
+     *
+     * @throws java.nio.BufferOverflowException if fewer than {@link #encodedSize} bytes remain
+     */
+    public static void encode(ChessGame game, ByteBuffer out) {
+        encodeBoard(game.getBoard(), out);
+        int flags = (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0) | (game.getCastlingRights() << 1);
+        out.put((byte) flags);
+        out.put((byte) (game.getEnPassantSquare() + 1));
+        out.putShort((short) Math.min(game.getHalfmoveClock(), 0xFFFF));
+        out.putShort((short) Math.min(game.getFullmoveNumber(), 0xFFFF));
+    }
+
+    /**
+     * Reads a game written by {@link #encode(ChessGame, ByteBuffer)} into an existing game,
+     * replacing its position and clearing its move history
+     *
+     * @throws IllegalArgumentException if the bytes do not describe a position or are cut
+     *                                  short; the game and buffer are then left as they were
+     */
+    public static void decode(ByteBuffer in, ChessGame into) {
+        int state = checkBoard(in, in.position());
+        if (in.limit() - state < 6) {
+            throw new IllegalArgumentException("Encoded game is cut short");
+        }
+        if ((in.get(state) & 0xFF) > 31 || (in.get(state + 1) & 0xFF) > 64) {
+            throw new IllegalArgumentException("Corrupt game state byte");
+        }
+        // as in FEN, the en passant square is behind a pawn the other side just pushed
+        int checkedEnPassant = (in.get(state + 1) & 0xFF) - 1;
+        if (checkedEnPassant >= 0 && checkedEnPassant >>> 3 != ((in.get(state) & 1) == 0 ? 5 : 2)) {
+            throw new IllegalArgumentException("En passant square " + checkedEnPassant
+                    + " is on the wrong rank for the side to move");
+        }
+
+        ChessBoard board = into.getBoard();
+        readBoard(in, board);
+        int flags = in.get() & 0xFF;
+        int enPassant = (in.get() & 0xFF) - 1;
+        int halfmove = in.getShort() & 0xFFFF;
+        int fullmove = in.getShort() & 0xFFFF;
+
+        ChessGame.TeamColor turn = (flags & 1) == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        into.setBoard(board);
+        into.setTeamTurn(turn);
+        // and is only kept when a pawn to move is there to take it, as Fen and makeMove do
+        if (enPassant >= 0 && (AttackTables.pawnAttacks(opponent(turn), enPassant)
+                & board.getBitboard(turn, ChessPiece.PieceType.PAWN)) == 0) {
+            enPassant = -1;
+        }
+        into.setPositionState(flags >>> 1, enPassant, halfmove, fullmove);
+    }
+
+    /**
+     * @return a new game read from the buffer
+     * @see #decode(ByteBuffer, ChessGame)
+     */
+    public static ChessGame decode(ByteBuffer in) {
+        ChessGame game = new ChessGame();
+        decode(in, game);
+        return game;
+    }
+
+    /**
+     * @return the game encoded into a right-sized array, e.g. for a database column
+     */
+    public static byte[] toBytes(ChessGame game) {
+        byte[] bytes = new byte[encodedSize(game)];
+        encode(game, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * @return a new game read from an array written by {@link #toBytes(ChessGame)}
+     */
+    public static ChessGame fromBytes(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Writes only the piece placement at the buffer's position and advances it
+     */
+    public static void encodeBoard(ChessBoard board, ByteBuffer out) {
+        long occupied = board.getOccupied();
+        out.putLong(occupied);
+
+        int pending = -1;
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            ChessPiece piece = board.getPiece(square);
+            int nibble = ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            if (pending < 0) {
+                pending = nibble << 4;
+            } else {
+                out.put((byte) (pending | nibble));
+                pending = -1;
+            }
+        }
+        if (pending >= 0) {
+            out.put((byte) pending);
+        }
+    }
+
+    /**
+     * Replaces the board's contents with a placement written by {@link #encodeBoard(ChessBoard, ByteBuffer)}
+     *
+     * @throws IllegalArgumentException if a nibble is not a piece index or the placement
+     *                                  is cut short; the board and buffer are then left as they were
+     */
+    public static void decodeBoard(ByteBuffer in, ChessBoard into) {
+        checkBoard(in, in.position());
+        readBoard(in, into);
+    }
+
+    /**
+     * Checks the placement starting at an absolute offset without moving the buffer
+     *
+     * @return the offset just past it
+     */
+    private static int checkBoard(ByteBuffer in, int at) {
+        if (in.limit() - at < 8) {
+            throw new IllegalArgumentException("Encoded board is cut short");
+        }
+        long occupied = in.getLong(at);
+        int count = Long.bitCount(occupied);
+        int end = at + 8 + (count + 1) / 2;
+        if (end > in.limit()) {
+            throw new IllegalArgumentException("Encoded board is cut short");
+        }
+        for (int i = 0; occupied != 0; i++, occupied &= occupied - 1) {
+            int packed = in.get(at + 8 + i / 2) & 0xFF;
+            int nibble = (i & 1) == 0 ? packed >>> 4 : packed & 15;
+            if (nibble >= PIECES.length) {
+                throw new IllegalArgumentException("Corrupt piece nibble " + nibble
+                        + " on square " + Long.numberOfTrailingZeros(occupied));
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Reads a placement already passed by {@link #checkBoard}
+     */
+    private static void readBoard(ByteBuffer in, ChessBoard into) {
+        long occupied = in.getLong();
+        into.clear();
+
+        int current = 0;
+        boolean high = true;
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+
+            int nibble;
+            if (high) {
+                current = in.get() & 0xFF;
+                nibble = current >>> 4;
+            } else {
+                nibble = current & 15;
+            }
+            high = !high;
+            into.setSquare(square, PIECES[nibble]);
+        }
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
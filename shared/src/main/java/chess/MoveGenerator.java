@@ -0,0 +1,195 @@
+package chess;
+
+/**
+ * Generates fully legal moves for one team in a single pass.
+ * <p>
+ * Instead of generating every pseudo-legal move and testing each one for self-check,
+ * the position is analysed once up front:
+ * <ul>
+ *   <li>checkers: enemy pieces attacking our king. With two, only the king may move.
+ *   With one, other pieces must capture it or block the ray, so their targets are
+ *   limited to a "check mask".</li>
+ *   <li>pinned pieces: ours, standing alone between our king and an enemy slider.
+ *   They may only move along the line through the king.</li>
+ *   <li>king moves are tested against the attacked squares with the king itself lifted
+ *   off the board, so it cannot step back along a checking ray.</li>
+ * </ul>
+ * En passant can expose the king along a rank in ways the masks do not capture,
+ * so those (rare) moves alone are verified by making and unmaking them.
+ */
+final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Appends the legal moves of one team, or of the single piece on {@code onlyFrom}.
+     * En passant is only offered to the side whose turn it is.
+     *
+     * @param onlyFrom square to restrict generation to, or -1 for every piece of the team
+     * @return number of moves appended
+     */
+    static int generate(ChessGame game, ChessGame.TeamColor us, int onlyFrom, MoveList moves) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor them = opponent(us);
+        int start = moves.size();
+        long fromMask = onlyFrom < 0 ? ~0L : 1L << onlyFrom;
+        long occupied = board.getOccupied();
+        long kingBit = board.getBitboard(us, ChessPiece.PieceType.KING);
+
+        // boards without our king (piece tests, puzzles) have no checks or pins
+        int king = kingBit == 0 ? -1 : Long.numberOfTrailingZeros(kingBit);
+        long checkers = king < 0 ? 0 : attackers(board, king, them, occupied);
+        long pinned = king < 0 ? 0 : pinnedPieces(board, king, us, them, occupied);
+
+        long checkMask = ~0L;
+        if (Long.bitCount(checkers) > 1) {
+            checkMask = 0;
+        } else if (checkers != 0) {
+            checkMask = checkers | AttackTables.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+
+        long pieces = board.getOccupancy(us) & ~kingBit & fromMask;
+        if (checkMask != 0) {
+            while (pieces != 0) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+
+                long allowed = checkMask;
+                if ((pinned & (1L << from)) != 0) {
+                    allowed &= AttackTables.line(king, from);
+                }
+
+                int before = moves.size();
+                board.getPiece(from).pieceMoves(board, from, moves);
+                keepTargets(moves, before, allowed);
+            }
+        }
+
+        if ((kingBit & fromMask) != 0) {
+            int before = moves.size();
+            board.getPiece(king).pieceMoves(board, king, moves);
+
+            // lift the king so squares behind it on a checking ray count as attacked
+            long withoutKing = occupied & ~kingBit;
+            int kept = before;
+            for (int i = before; i < moves.size(); i++) {
+                if (attackers(board, PackedMove.to(moves.get(i)), them, withoutKing) == 0) {
+                    moves.set(kept++, moves.get(i));
+                }
+            }
+            moves.truncate(kept);
+
+            if (checkers == 0) {
+                addCastlingMoves(game, us, king, moves);
+            }
+        }
+
+        if (us == game.getTeamTurn() && game.getEnPassantSquare() >= 0) {
+            addEnPassantMoves(game, us, fromMask, moves);
+        }
+        return moves.size() - start;
+    }
+
+    /**
+     * @return mask of the attacking team's pieces that could capture on the square,
+     * treating {@code occupied} as the set of blockers
+     */
+    static long attackers(ChessBoard board, int square, ChessGame.TeamColor attacker, long occupied) {
+        long queens = board.getBitboard(attacker, ChessPiece.PieceType.QUEEN);
+        long straight = board.getBitboard(attacker, ChessPiece.PieceType.ROOK) | queens;
+        long diagonal = board.getBitboard(attacker, ChessPiece.PieceType.BISHOP) | queens;
+
+        // a pawn attacks this square if it stands where a defending pawn here would attack
+        return (AttackTables.knightAttacks(square) & board.getBitboard(attacker, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.pawnAttacks(opponent(attacker), square)
+                        & board.getBitboard(attacker, ChessPiece.PieceType.PAWN))
+                | (AttackTables.kingAttacks(square) & board.getBitboard(attacker, ChessPiece.PieceType.KING))
+                | (AttackTables.rookAttacks(square, occupied) & straight)
+                | (AttackTables.bishopAttacks(square, occupied) & diagonal);
+    }
+
+    private static long pinnedPieces(ChessBoard board, int king, ChessGame.TeamColor us, ChessGame.TeamColor them,
+                                     long occupied) {
+        long queens = board.getBitboard(them, ChessPiece.PieceType.QUEEN);
+        // enemy sliders that would hit the king on an empty board
+        long snipers = (AttackTables.rookAttacks(king, 0) & (board.getBitboard(them, ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishopAttacks(king, 0) & (board.getBitboard(them, ChessPiece.PieceType.BISHOP) | queens));
+
+        long pinned = 0;
+        long ours = board.getOccupancy(us);
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = AttackTables.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & ours) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    private static void keepTargets(MoveList moves, int from, long allowed) {
+        int kept = from;
+        for (int i = from; i < moves.size(); i++) {
+            if ((allowed & (1L << PackedMove.to(moves.get(i)))) != 0) {
+                moves.set(kept++, moves.get(i));
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    private static void addCastlingMoves(ChessGame game, ChessGame.TeamColor us, int king, MoveList moves) {
+        int homeRow = us == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (king != ChessBoard.squareIndex(homeRow, 5)) {
+            return;
+        }
+
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor them = opponent(us);
+        int rights = game.getCastlingRights();
+        int kingside = us == ChessGame.TeamColor.WHITE ? ChessGame.WHITE_KINGSIDE : ChessGame.BLACK_KINGSIDE;
+        int queenside = us == ChessGame.TeamColor.WHITE ? ChessGame.WHITE_QUEENSIDE : ChessGame.BLACK_QUEENSIDE;
+        long rooks = board.getBitboard(us, ChessPiece.PieceType.ROOK);
+        long occupied = board.getOccupied();
+
+        // squares between king and rook must be empty, and the king may not pass or land on an attacked square
+        if ((rights & kingside) != 0 && (rooks & (1L << (king + 3))) != 0
+                && (occupied & AttackTables.between(king, king + 3)) == 0
+                && attackers(board, king + 1, them, occupied) == 0
+                && attackers(board, king + 2, them, occupied) == 0) {
+            moves.add(PackedMove.of(king, king + 2) | PackedMove.CASTLE);
+        }
+        if ((rights & queenside) != 0 && (rooks & (1L << (king - 4))) != 0
+                && (occupied & AttackTables.between(king, king - 4)) == 0
+                && attackers(board, king - 1, them, occupied) == 0
+                && attackers(board, king - 2, them, occupied) == 0) {
+            moves.add(PackedMove.of(king, king - 2) | PackedMove.CASTLE);
+        }
+    }
+
+    private static void addEnPassantMoves(ChessGame game, ChessGame.TeamColor us, long fromMask, MoveList moves) {
+        ChessBoard board = game.getBoard();
+        int target = game.getEnPassantSquare();
+        long pawns = AttackTables.pawnAttacks(opponent(us), target)
+                & board.getBitboard(us, ChessPiece.PieceType.PAWN) & fromMask;
+
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            int move = PackedMove.of(from, target) | PackedMove.CAPTURE | PackedMove.EN_PASSANT;
+            game.makeMove(move);
+            boolean legal = !game.isInCheck(us);
+            game.unmakeMove();
+            if (legal) {
+                moves.add(move);
+            }
+        }
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
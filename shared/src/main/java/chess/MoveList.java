@@ -0,0 +1,62 @@
+package chess;
+
+/**
+ * A reusable, fixed-capacity buffer of {@link PackedMove} ints.
+ * <p>
+ * Callers own the list and clear it between uses, so generating moves into it
+ * allocates nothing. The default capacity covers the most moves any legal chess
+ * position has (218).
+ */
+public class MoveList {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drops every move after the first {@code newSize}, for callers that append then filter
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * @return the backing array; only the first {@link #size()} entries are meaningful
+     */
+    public int[] buffer() {
+        return moves;
+    }
+}
@@ -0,0 +1,85 @@
+package chess;
+
+/**
+ * Encodes a chess move into a single int so move generation can run without
+ * allocating a {@link ChessMove} (and two {@link ChessPosition}s) per move.
+ * <p>
+ * Layout, low bit first:
+ * <pre>
+ *   bits  0-5   from square (0-63, see {@link ChessBoard#squareIndex(int, int)})
+ *   bits  6-11  to square
+ *   bits 12-14  promotion piece, 0 for none, otherwise PieceType ordinal + 1
+ *   bits 15-18  flags (capture, double pawn push, en passant, castle)
+ * </pre>
+ * Two packed moves describe the same {@link ChessMove} when their low 15 bits match;
+ * the flags are hints for whoever applies the move.
+ */
+public final class PackedMove {
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    /**
+     * A value no real move encodes to; from and to are both square 0
+     */
+    public static final int NONE = 0;
+
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> 12) & 7;
+        return promotionBits == 0 ? null : PIECE_TYPES[promotionBits - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (7 << 12)) != 0;
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return the move with its flags stripped, suitable for comparing against user input
+     */
+    public static int withoutFlags(int move) {
+        return move & MOVE_MASK;
+    }
+
+    public static int fromChessMove(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        return of(ChessBoard.squareIndex(start.getRow(), start.getColumn()),
+                ChessBoard.squareIndex(end.getRow(), end.getColumn()), move.getPromotionPiece(), 0);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+    }
+}
@@ -0,0 +1,155 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance test ("perft"): counts the leaf nodes of the legal move tree to a fixed depth.
+ * <p>
+ * The counts for well-known positions are published, so any mismatch points at a rules
+ * bug (castling, en passant, promotion, pins...) and divide mode narrows it down to the
+ * root move whose subtree is wrong. Timing the same walk tracks move generation speed.
+ * <p>
+ * Run from the command line with
+ * <pre>
+ *   java chess.Perft [position] [depth] [divide]
+ * </pre>
+ * where position is one of the {@link Position} names (default START).
+ */
+public final class Perft {
+
+    /**
+     * Reference positions and their published node counts, indexed by depth - 1
+     */
+    public enum Position {
+        START(Fen.START,
+                20, 400, 8_902, 197_281, 4_865_609),
+        KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                48, 2_039, 97_862, 4_085_603),
+        ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                14, 191, 2_812, 43_238, 674_624),
+        PROMOTIONS("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                6, 264, 9_467, 422_333),
+        DISCOVERED("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                44, 1_486, 62_379, 2_103_487),
+        MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                46, 2_079, 89_890, 3_894_594);
+
+        private final String fen;
+        private final long[] nodes;
+
+        Position(String fen, long... nodes) {
+            this.fen = fen;
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return the position in Forsyth-Edwards Notation
+         */
+        public String fen() {
+            return fen;
+        }
+
+        /**
+         * @return a new game set up at this position
+         */
+        public ChessGame newGame() {
+            return ChessGame.fromFen(fen);
+        }
+
+        /**
+         * @return the published leaf count at the given depth
+         */
+        public long expectedNodes(int depth) {
+            return nodes[depth - 1];
+        }
+
+        /**
+         * @return the deepest depth with a published count
+         */
+        public int maxDepth() {
+            return nodes.length;
+        }
+    }
+
+    private Perft() {
+    }
+
+    /**
+     * Counts leaf nodes of the legal move tree below the game's current position.
+     * The game is walked with make/unmake and left exactly as it was.
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        MoveList[] lists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return perft(game, depth, lists);
+    }
+
+    /**
+     * Like {@link #perft(ChessGame, int)}, but reports the count below each root move separately
+     *
+     * @return leaf count per root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        MoveList rootMoves = new MoveList();
+        game.legalMoves(rootMoves);
+
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            game.makeMove(move);
+            counts.put(PackedMove.toChessMove(move), perft(game, depth - 1));
+            game.unmakeMove();
+        }
+        return counts;
+    }
+
+    private static long perft(ChessGame game, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth - 1];
+        moves.clear();
+        game.legalMoves(moves);
+        // the last ply only needs the count, not the positions
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            nodes += perft(game, depth - 1, lists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        Position position = args.length > 0 ? Position.valueOf(args[0].toUpperCase()) : Position.START;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : Math.min(5, position.maxDepth());
+        boolean divide = args.length > 2 && args[2].equalsIgnoreCase("divide");
+        ChessGame game = position.newGame();
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<ChessMove, Long> entry : divide(game, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = perft(game, depth);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%s depth %d: %,d nodes in %.1f ms (%,.0f nodes/s)%n",
+                position, depth, nodes, elapsed / 1e6, nodes / (elapsed / 1e9));
+        if (depth <= position.maxDepth() && nodes != position.expectedNodes(depth)) {
+            System.out.printf("MISMATCH: expected %,d%n", position.expectedNodes(depth));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package chess;
+
+/**
+ * Random 64-bit keys used to hash positions incrementally.
+ * <p>
+ * A position's key is the XOR of the key for every (piece, square) pair on the board,
+ * plus keys for black to move, the castling rights and the en passant file. Changing
+ * any one of those is a single XOR instead of a rescan of all 64 squares.
+ */
+public final class Zobrist {
+
+    private static final long[] PIECE_SQUARE = new long[12 * 64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        // fixed seed so keys (and anything persisted with them) are stable between runs
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            PIECE_SQUARE[i] = mix(seed);
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            EN_PASSANT_FILE[i] = mix(seed);
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        BLACK_TO_MOVE = mix(seed);
+
+        // each castling right gets its own key; a set of rights is the XOR of its members
+        long[] single = new long[4];
+        for (int i = 0; i < single.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            single[i] = mix(seed);
+        }
+        for (int rights = 0; rights < CASTLING.length; rights++) {
+            for (int i = 0; i < single.length; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING[rights] ^= single[i];
+                }
+            }
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param pieceIndex see {@link ChessBoard#pieceIndex(ChessGame.TeamColor, ChessPiece.PieceType)}
+     * @param square     0-63
+     */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex * 64 + square];
+    }
+
+    /**
+     * @return key XORed in while black is the side to move
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    /**
+     * @param rights bit set of ChessGame castling constants
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param square en passant target square, or -1 for none
+     * @return key for the file of that square, or 0 when there is none
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+
+    private static long mix(long z) {
+        // splitmix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,226 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only opening book: a file of (position key, move, weight) records sorted by key,
+ * memory-mapped and searched in place.
+ * <p>
+ * The file is a 16-byte header followed by 16-byte records, all little-endian:
+ * <pre>
+ *   header   int magic "BOOK", int version, long record count
+ *   record   long Zobrist key, int {@link PackedMove}, int weight
+ * </pre>
+ * Records are sorted by key (signed), and within a key by descending weight, so every
+ * move for a position sits in one run with the most popular first. Opening a book maps
+ * the file without reading it; lookups binary-search the mapping and touch only the
+ * pages on their path, so even a book of tens of millions of records opens instantly
+ * and a probe allocates nothing. Books larger than one mapping are mapped in several
+ * regions.
+ * <p>
+ * Books are written by {@link OpeningBookBuilder}. An open book is safe to probe from
+ * any number of threads.
+ */
+public class OpeningBook implements AutoCloseable {
+
+    static final int MAGIC = 0x4B4F4F42; // "BOOK" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 16;
+
+    // records per mapped region; 2^26 records is exactly 1 GiB
+    private static final int REGION_SHIFT = 26;
+    private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+
+    /**
+     * Returned by the lookups when the position is not in the book
+     */
+    public static final long NOT_FOUND = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final long size;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer[] regions, long size) {
+        this.channel = channel;
+        this.regions = regions;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file
+     *
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported opening book version " + header.getInt(4) + ": " + file);
+            }
+            long size = header.getLong(8);
+            if (size < 0 || HEADER_BYTES + size * RECORD_BYTES > fileSize) {
+                throw new IOException("Truncated opening book: " + file);
+            }
+
+            int regionCount = (int) ((size + REGION_MASK) >>> REGION_SHIFT);
+            MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                long first = (long) i << REGION_SHIFT;
+                long records = Math.min(size - first, 1L << REGION_SHIFT);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+                regions[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new OpeningBook(channel, regions, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of records, counting each (position, move) pair once
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return index of the first record for the position, or {@link #NOT_FOUND}
+     */
+    public long find(long key) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (key(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < size && key(low) == key ? low : NOT_FOUND;
+    }
+
+    /**
+     * @return how many moves the book has for the position
+     */
+    public int count(long key) {
+        long first = find(key);
+        if (first == NOT_FOUND) {
+            return 0;
+        }
+        long i = first;
+        while (i < size && key(i) == key) {
+            i++;
+        }
+        return (int) (i - first);
+    }
+
+    /**
+     * Appends the book's moves for the position, most popular first
+     *
+     * @return number of moves appended
+     */
+    public int moves(long key, MoveList moves) {
+        long first = find(key);
+        if (first == NOT_FOUND) {
+            return 0;
+        }
+        int count = 0;
+        for (long i = first; i < size && key(i) == key; i++) {
+            moves.add(move(i));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the most popular book move in the game's position as a {@link PackedMove},
+     * or {@link PackedMove#NONE} if the position is out of book
+     */
+    public int bestMove(ChessGame game) {
+        long first = find(game.getZobristKey());
+        return first == NOT_FOUND ? PackedMove.NONE : move(first);
+    }
+
+    /**
+     * Picks a book move at random, each in proportion to its weight
+     *
+     * @param random a uniformly random value, e.g. from {@link java.util.Random#nextLong()}
+     * @return the move, or {@link PackedMove#NONE} if the position is out of book
+     */
+    public int pickMove(ChessGame game, long random) {
+        long key = game.getZobristKey();
+        long first = find(key);
+        if (first == NOT_FOUND) {
+            return PackedMove.NONE;
+        }
+        long total = 0;
+        long end = first;
+        while (end < size && key(end) == key) {
+            total += weight(end);
+            end++;
+        }
+        if (total == 0) {
+            return move(first);
+        }
+        long target = Long.remainderUnsigned(random, total);
+        for (long i = first; i < end; i++) {
+            target -= weight(i);
+            if (target < 0) {
+                return move(i);
+            }
+        }
+        return move(first);
+    }
+
+    /**
+     * @return the position key of a record
+     */
+    public long key(long index) {
+        return regions[(int) (index >>> REGION_SHIFT)].getLong((int) (index & REGION_MASK) * RECORD_BYTES);
+    }
+
+    /**
+     * @return the {@link PackedMove} of a record
+     */
+    public int move(long index) {
+        return regions[(int) (index >>> REGION_SHIFT)].getInt((int) (index & REGION_MASK) * RECORD_BYTES + 8);
+    }
+
+    /**
+     * @return the weight of a record: how well the move has done for the side playing it
+     */
+    public int weight(long index) {
+        return regions[(int) (index >>> REGION_SHIFT)].getInt((int) (index & REGION_MASK) * RECORD_BYTES + 12);
+    }
+
+    /**
+     * Closes the file. Mappings stay valid until they are garbage collected, but the book
+     * should not be probed afterward.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,290 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnImporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Collects the opening moves of many games and writes them as an {@link OpeningBook}.
+ * <p>
+ * Each game is replayed from its start with {@link ChessGame#makeMove(int)} for the first
+ * {@link #getMaxPly()} half-moves, and every (position, move) pair it passes through is
+ * credited with the game's result for the side that played the move: 2 for a win, 1 for
+ * a draw or an unfinished game, 0 for a loss. Pairs are counted in an open-addressed
+ * table of primitive arrays, so millions of them cost a few dozen bytes each.
+ * <p>
+ * Games may be added from several threads at once, as {@link PgnImporter} does.
+ * <p>
+ * Run from the command line with
+ * <pre>
+ *   java chess.book.OpeningBookBuilder book.bin games.pgn [more.pgn ...]
+ * </pre>
+ */
+public class OpeningBookBuilder {
+
+    public static final int DEFAULT_MAX_PLY = 24;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int WRITE_BUFFER_RECORDS = 4096;
+
+    private final int maxPly;
+
+    // (key, move) -> weight; a move of 0 marks an empty slot, since no legal move packs to 0
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] moves = new int[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    private int size;
+    private long games;
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLY);
+    }
+
+    /**
+     * @param maxPly how many half-moves of each game to take into the book
+     */
+    public OpeningBookBuilder(int maxPly) {
+        if (maxPly < 1) {
+            throw new IllegalArgumentException("Book depth must be positive: " + maxPly);
+        }
+        this.maxPly = maxPly;
+    }
+
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    /**
+     * @return distinct (position, move) pairs collected so far
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return games added so far
+     */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * Adds the opening of a game read from PGN, starting from its FEN tag if it has one
+     */
+    public void addGame(PgnGame game) {
+        String fen = game.getTag("FEN");
+        ChessGame start = fen == null ? new ChessGame() : ChessGame.fromFen(fen);
+        addGame(start, game.getPackedMoves(), game.getResult());
+    }
+
+    /**
+     * Replays the opening moves from the given position, which is left after the last
+     * move taken into the book
+     *
+     * @param moves  the game's moves as {@link chess.PackedMove}s
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     */
+    public void addGame(ChessGame start, int[] moves, String result) {
+        int plies = Math.min(maxPly, moves.length);
+        long[] positionKeys = new long[plies];
+        boolean[] whiteMoved = new boolean[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            positionKeys[ply] = start.getZobristKey();
+            whiteMoved[ply] = start.getTeamTurn() == ChessGame.TeamColor.WHITE;
+            start.makeMove(moves[ply]);
+        }
+
+        int whiteScore = switch (result) {
+            case "1-0" -> 2;
+            case "0-1" -> 0;
+            default -> 1;
+        };
+        synchronized (this) {
+            for (int ply = 0; ply < plies; ply++) {
+                add(positionKeys[ply], moves[ply], whiteMoved[ply] ? whiteScore : 2 - whiteScore);
+            }
+            games++;
+        }
+    }
+
+    /**
+     * Adds every game of a PGN file, parsing it in parallel
+     *
+     * @return what the import read, including any malformed games it skipped
+     */
+    public PgnImporter.Report addFile(Path pgn) throws IOException {
+        return PgnImporter.importFile(pgn, this::addGame);
+    }
+
+    /**
+     * Writes the book, sorted by position key and then by descending weight. Moves that
+     * never scored (only ever lost) are left out.
+     *
+     * @return number of records written
+     */
+    public synchronized long write(Path file) throws IOException {
+        int count = 0;
+        long[] sortedKeys = new long[size];
+        // move in the high half, weight in the low, so one long carries both through the sort
+        long[] payloads = new long[size];
+        for (int i = 0; i < keys.length; i++) {
+            if (moves[i] != 0 && weights[i] > 0) {
+                sortedKeys[count] = keys[i];
+                payloads[count] = ((long) moves[i] << 32) | weights[i];
+                count++;
+            }
+        }
+        sort(sortedKeys, payloads, 0, count - 1);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * OpeningBook.RECORD_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putLong(count);
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < OpeningBook.RECORD_BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(sortedKeys[i])
+                        .putInt((int) (payloads[i] >>> 32))
+                        .putInt((int) payloads[i]);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        return count;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void add(long key, int move, int weight) {
+        int mask = keys.length - 1;
+        int i = slot(key, move, mask);
+        while (moves[i] != 0) {
+            if (keys[i] == key && moves[i] == move) {
+                weights[i] += weight;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        moves[i] = move;
+        weights[i] = weight;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    private static int slot(long key, int move, int mask) {
+        long h = (key ^ move) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldMoves = moves;
+        int[] oldWeights = weights;
+        keys = new long[oldKeys.length * 2];
+        moves = new int[oldKeys.length * 2];
+        weights = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldMoves[j] != 0) {
+                int i = slot(oldKeys[j], oldMoves[j], mask);
+                while (moves[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                moves[i] = oldMoves[j];
+                weights[i] = oldWeights[j];
+            }
+        }
+    }
+
+    /**
+     * Quicksorts the parallel arrays by key, then by descending weight (the low half of
+     * the payload)
+     */
+    private static void sort(long[] keys, long[] payloads, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                insertionSort(keys, payloads, low, high);
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            long pivotKey = keys[mid];
+            long pivotPayload = payloads[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(keys[i], payloads[i], pivotKey, pivotPayload) < 0) {
+                    i++;
+                }
+                while (compare(keys[j], payloads[j], pivotKey, pivotPayload) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, payloads, i++, j--);
+                }
+            }
+            // recurse into the smaller half so the stack stays logarithmic
+            if (j - low < high - i) {
+                sort(keys, payloads, low, j);
+                low = i;
+            } else {
+                sort(keys, payloads, i, high);
+                high = j;
+            }
+        }
+    }
+
+    private static void insertionSort(long[] keys, long[] payloads, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(keys[j], payloads[j], keys[j - 1], payloads[j - 1]) < 0; j--) {
+                swap(keys, payloads, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long key, long payload, long otherKey, long otherPayload) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Integer.compare((int) otherPayload, (int) payload);
+    }
+
+    private static void swap(long[] keys, long[] payloads, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long payload = payloads[i];
+        payloads[i] = payloads[j];
+        payloads[j] = payload;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java chess.book.OpeningBookBuilder <book.bin> <games.pgn>...");
+            return;
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        for (int i = 1; i < args.length; i++) {
+            System.out.println(args[i] + ": " + builder.addFile(Path.of(args[i])));
+        }
+        long start = System.nanoTime();
+        long records = builder.write(Path.of(args[0]));
+        System.out.printf("%,d records from %,d games written to %s in %.1f ms%n",
+                records, builder.getGames(), args[0], (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,580 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.tablebase.Material;
+import chess.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Picks a move by searching the game tree.
+ * <p>
+ * Negamax alpha-beta with iterative deepening: each iteration searches one ply deeper,
+ * seeded by the transposition table and the previous best line, until a {@link Limits}
+ * limit is hit. Leaves are extended by a captures-only quiescence search so the static
+ * evaluation is never taken in the middle of an exchange. Moves are tried in order of
+ * the table's best move, captures by most valuable victim / least valuable attacker,
+ * killer moves, then the history heuristic.
+ * <p>
+ * With more than one thread the search is "lazy SMP": every thread searches the same
+ * root position on its own copy of the game, with its own killers and history, and they
+ * cooperate only through the shared lock-free {@link TranspositionTable}. Half the helpers
+ * run one ply deeper than the main thread, so their results land in the table ahead of
+ * it. The main thread's result is the one returned.
+ * <p>
+ * Given a {@link Tablebase}, a root position it covers is answered from the tables
+ * without searching, and inside the tree every position down to
+ * {@link Material#MAX_PIECES} pieces is scored from them instead of searched further.
+ * <p>
+ * The main thread plays moves on the caller's game with makeMove / unmakeMove and leaves
+ * it exactly as it found it. An engine keeps its table and history between searches, so
+ * reuse one per game; only one search may run on it at a time.
+ */
+public class Engine implements AutoCloseable {
+
+    public static final int MATE = 30_000;
+    static final int MAX_PLY = 128;
+
+    private static final int INFINITY = 32_000;
+
+    // how often, in nodes, each thread publishes its count and looks at the clock and stop flag
+    private static final int CHECK_INTERVAL = 1024;
+
+    // move ordering bands: table move, then captures / promotions, then killers, then history
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 26;
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    // victim / attacker order for MVV-LVA, indexed by PieceType ordinal
+    private static final int[] ORDER_RANK = {6, 5, 3, 2, 4, 1};
+
+    private static final AtomicInteger HELPER_THREAD_NUMBER = new AtomicInteger();
+
+    private final TranspositionTable table;
+    private Worker[] workers;
+    private ExecutorService helpers;
+    private Tablebase tablebase;
+
+    // shared by the threads of the running search
+    private Limits limits;
+    private long startNanos;
+    private long deadline;
+    private int maxDepth;
+    private final AtomicLong sharedNodes = new AtomicLong();
+    private volatile boolean halted;
+
+    public Engine() {
+        this(16);
+    }
+
+    /**
+     * @param tableMegabytes size of the transposition table
+     */
+    public Engine(int tableMegabytes) {
+        this(tableMegabytes, 1);
+    }
+
+    /**
+     * @param tableMegabytes size of the transposition table, shared by all threads
+     * @param threads        number of threads each search uses
+     */
+    public Engine(int tableMegabytes, int threads) {
+        this.table = new TranspositionTable(tableMegabytes);
+        setThreads(threads);
+    }
+
+    /**
+     * Sets how many threads later searches use. Helper threads are kept alive between
+     * searches until {@link #close()}.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one search thread, got " + threads);
+        }
+        if (helpers != null) {
+            helpers.shutdown();
+        }
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, task -> {
+            Thread thread = new Thread(task, "engine-helper-" + HELPER_THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Sets the endgame tables later searches consult; they are only read, so one
+     * tablebase may serve many engines
+     *
+     * @param tablebase or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Searches the game's current position for the side to move
+     *
+     * @return the best move found within the limits, with its score and line
+     */
+    public SearchResult search(ChessGame game, Limits limits) {
+        this.limits = limits;
+        this.startNanos = System.nanoTime();
+        this.deadline = limits.getMoveTimeMillis() > 0
+                ? startNanos + TimeUnit.MILLISECONDS.toNanos(limits.getMoveTimeMillis()) : 0;
+        this.maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 2) : MAX_PLY - 2;
+        this.sharedNodes.set(0);
+        this.halted = false;
+
+        MoveList rootMoves = new MoveList();
+        game.legalMoves(rootMoves);
+        if (rootMoves.isEmpty()) {
+            int score = game.isInCheck(game.getTeamTurn()) ? -MATE : 0;
+            return new SearchResult(0, score, 0, 0, System.nanoTime() - startNanos, new int[0], List.of());
+        }
+        int value = tablebase == null ? Tablebase.NOT_FOUND : tablebase.probe(game);
+        if (value != Tablebase.NOT_FOUND) {
+            int best = tablebase.bestMove(game);
+            if (best != PackedMove.NONE) {
+                return new SearchResult(best, Tablebase.toScore(value), 0, 0, System.nanoTime() - startNanos,
+                        new int[]{best}, List.of());
+            }
+        }
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            Worker helper = workers[i];
+            helper.prepare(new ChessGame(game));
+            running.add(helpers.submit(helper::searchAsHelper));
+        }
+        Worker main = workers[0];
+        main.prepare(game);
+        main.searchAsMain(rootMoves.get(0));
+
+        halted = true;
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search thread failed", e.getCause());
+            }
+        }
+
+        long elapsed = System.nanoTime() - startNanos;
+        long nodes = 0;
+        List<ThreadStats> stats = new ArrayList<>(workers.length);
+        for (Worker worker : workers) {
+            nodes += worker.nodes;
+            stats.add(new ThreadStats(worker.id, worker.nodes, worker.completedDepth, elapsed));
+        }
+        return new SearchResult(main.bestMove, main.bestScore, main.completedDepth, nodes, elapsed,
+                main.bestLine, stats);
+    }
+
+    /**
+     * Asks a running search to return as soon as possible, with the result of the
+     * last completed iteration. Safe to call from another thread.
+     */
+    public void stop() {
+        halted = true;
+    }
+
+    /**
+     * Forgets everything learned, e.g. before starting an unrelated game
+     */
+    public void clear() {
+        table.clear();
+        for (Worker worker : workers) {
+            Arrays.fill(worker.history, 0);
+        }
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Stops the helper threads
+     */
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+            helpers = null;
+        }
+    }
+
+    /**
+     * One search thread: its own game copy, move lists, killers, history and line
+     */
+    private final class Worker {
+
+        private final int id;
+        private final MoveList[] moveLists = new MoveList[MAX_PLY];
+        private final int[][] moveScores = new int[MAX_PLY][MoveList.DEFAULT_CAPACITY];
+        private final int[][] killers = new int[MAX_PLY][2];
+        private final int[] history = new int[12 * 64];
+        private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+        private final int[] pvLength = new int[MAX_PLY];
+
+        private ChessGame game;
+        private long nodes;
+        private int unpublished;
+        private boolean stopped;
+
+        // main thread results
+        private int completedDepth;
+        private int bestMove;
+        private int bestScore;
+        private int[] bestLine;
+
+        Worker(int id) {
+            this.id = id;
+            for (int i = 0; i < MAX_PLY; i++) {
+                moveLists[i] = new MoveList();
+            }
+        }
+
+        void prepare(ChessGame game) {
+            this.game = game;
+            this.nodes = 0;
+            this.unpublished = 0;
+            this.stopped = false;
+            this.completedDepth = 0;
+            for (int[] pair : killers) {
+                Arrays.fill(pair, 0);
+            }
+            // keep what history learned last move, but let this position's moves outweigh it
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 3;
+            }
+        }
+
+        void searchAsMain(int firstMove) {
+            bestMove = firstMove;
+            bestScore = 0;
+            bestLine = new int[]{firstMove};
+
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                int score = negamax(depth, 0, -INFINITY, INFINITY);
+                if (stopped) {
+                    break;
+                }
+                bestMove = pv[0][0];
+                bestScore = score;
+                completedDepth = depth;
+                bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+
+                // a forced mate found within this depth will not change
+                if (Math.abs(score) >= MATE - depth) {
+                    break;
+                }
+                // the next iteration takes several times as long as this one, so don't start what can't finish
+                if (deadline > 0 && System.nanoTime() - startNanos > (deadline - startNanos) / 2) {
+                    break;
+                }
+            }
+            publishNodes();
+        }
+
+        void searchAsHelper() {
+            for (int depth = 1; depth <= maxDepth && !stopped; depth++) {
+                // odd helpers stay a ply ahead of the main thread
+                negamax(Math.min(depth + (id & 1), maxDepth), 0, -INFINITY, INFINITY);
+                if (!stopped) {
+                    completedDepth = depth;
+                }
+            }
+            publishNodes();
+        }
+
+        private int negamax(int depth, int ply, int alpha, int beta) {
+            pvLength[ply] = ply;
+            if (ply > 0 && (game.getHalfmoveClock() >= 100 || game.isRepetition())) {
+                return 0;
+            }
+            if (ply > 0 && tablebase != null && Long.bitCount(game.getBoard().getOccupied()) <= Material.MAX_PIECES) {
+                int value = tablebase.probe(game);
+                if (value != Tablebase.NOT_FOUND) {
+                    // the table counts plies to mate from here; the search counts them from the root
+                    return fromTable(Tablebase.toScore(value), ply);
+                }
+            }
+
+            boolean inCheck = game.isInCheck(game.getTeamTurn());
+            if (inCheck) {
+                // look one ply further so a check is never the last move seen
+                depth++;
+            }
+            if (depth <= 0) {
+                return quiescence(ply, alpha, beta);
+            }
+            if (countNode()) {
+                return 0;
+            }
+            if (ply >= MAX_PLY - 1) {
+                return Evaluator.evaluate(game);
+            }
+
+            long key = game.getZobristKey();
+            long entry = table.probe(key);
+            int tableMove = 0;
+            if (entry != TranspositionTable.MISS) {
+                tableMove = TranspositionTable.move(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+
+            MoveList moves = moveLists[ply];
+            moves.clear();
+            game.legalMoves(moves);
+            if (moves.isEmpty()) {
+                return inCheck ? -MATE + ply : 0;
+            }
+            scoreMoves(moves, ply, tableMove);
+
+            int originalAlpha = alpha;
+            int bestScore = -INFINITY;
+            int bestMove = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = selectMove(moves, moveScores[ply], i);
+                game.makeMove(move);
+                int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                game.unmakeMove();
+                if (stopped) {
+                    return 0;
+                }
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                    if (score > alpha) {
+                        alpha = score;
+                        updatePv(ply, move);
+                        if (score >= beta) {
+                            if (isQuiet(move)) {
+                                rememberCutoff(move, ply, depth);
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int bound = bestScore >= beta ? TranspositionTable.LOWER
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+            return bestScore;
+        }
+
+        /**
+         * Searches captures and promotions only, until the position is quiet
+         */
+        private int quiescence(int ply, int alpha, int beta) {
+            pvLength[ply] = ply;
+            if (countNode()) {
+                return 0;
+            }
+
+            // the side to move can usually do at least as well as standing pat
+            int standPat = Evaluator.evaluate(game);
+            if (standPat >= beta || ply >= MAX_PLY - 1) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+
+            MoveList moves = moveLists[ply];
+            moves.clear();
+            game.legalMoves(moves);
+            int kept = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                if (!isQuiet(moves.get(i))) {
+                    moves.set(kept++, moves.get(i));
+                }
+            }
+            moves.truncate(kept);
+            scoreMoves(moves, ply, 0);
+
+            for (int i = 0; i < moves.size(); i++) {
+                int move = selectMove(moves, moveScores[ply], i);
+                game.makeMove(move);
+                int score = -quiescence(ply + 1, -beta, -alpha);
+                game.unmakeMove();
+                if (stopped) {
+                    return 0;
+                }
+                if (score >= beta) {
+                    return score;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                }
+            }
+            return alpha;
+        }
+
+        /**
+         * Counts a node and checks the limits
+         *
+         * @return true if the search has to stop
+         */
+        private boolean countNode() {
+            nodes++;
+            unpublished++;
+            if (limits.getNodes() > 0 && sharedNodes.get() + unpublished >= limits.getNodes()) {
+                halted = true;
+                stopped = true;
+            }
+            if (unpublished == CHECK_INTERVAL) {
+                long total = publishNodes();
+                long now = System.nanoTime();
+                if (halted || (deadline > 0 && now >= deadline)) {
+                    halted = true;
+                    stopped = true;
+                } else if (limits.getNodesPerSecond() > 0) {
+                    // running ahead of the budget: wait until the clock catches up with the node count
+                    long due = startNanos + total * 1_000_000_000L / limits.getNodesPerSecond();
+                    if (due > now) {
+                        LockSupport.parkNanos(deadline > 0 ? Math.min(due, deadline) - now : due - now);
+                    }
+                }
+            }
+            return stopped;
+        }
+
+        /**
+         * @return nodes searched so far by all threads
+         */
+        private long publishNodes() {
+            long total = sharedNodes.addAndGet(unpublished);
+            unpublished = 0;
+            return total;
+        }
+
+        private void scoreMoves(MoveList moves, int ply, int tableMove) {
+            ChessBoard board = game.getBoard();
+            int[] scores = moveScores[ply];
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                ChessPiece piece = board.getPiece(PackedMove.from(move));
+                int score;
+                if (move == tableMove) {
+                    score = TABLE_MOVE_SCORE;
+                } else if (PackedMove.hasFlag(move, PackedMove.CAPTURE)) {
+                    ChessPiece victim = board.getPiece(PackedMove.to(move));
+                    int victimRank = victim == null ? ORDER_RANK[ChessPiece.PieceType.PAWN.ordinal()]
+                            : ORDER_RANK[victim.getPieceType().ordinal()];
+                    score = CAPTURE_SCORE + victimRank * 16 - ORDER_RANK[piece.getPieceType().ordinal()];
+                } else if (PackedMove.isPromotion(move)) {
+                    score = CAPTURE_SCORE + ORDER_RANK[PackedMove.promotion(move).ordinal()];
+                } else if (move == killers[ply][0]) {
+                    score = KILLER_SCORE + 1;
+                } else if (move == killers[ply][1]) {
+                    score = KILLER_SCORE;
+                } else {
+                    score = history[historyIndex(piece, move)];
+                }
+                scores[i] = score;
+            }
+        }
+
+        private void rememberCutoff(int move, int ply, int depth) {
+            if (killers[ply][0] != move) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = move;
+            }
+            // the move has already been made and unmade, so the piece is back on its square
+            int index = historyIndex(game.getBoard().getPiece(PackedMove.from(move)), move);
+            history[index] += depth * depth;
+            if (history[index] >= HISTORY_LIMIT) {
+                for (int i = 0; i < history.length; i++) {
+                    history[i] >>= 1;
+                }
+            }
+        }
+
+        private void updatePv(int ply, int move) {
+            pv[ply][ply] = move;
+            int childLength = pvLength[ply + 1];
+            System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, childLength - (ply + 1));
+            pvLength[ply] = Math.max(childLength, ply + 1);
+        }
+    }
+
+    /**
+     * Swaps the best-scored of the remaining moves into position {@code index}. Selecting
+     * lazily is cheaper than a full sort, since most nodes cut off after a move or two.
+     */
+    private static int selectMove(MoveList moves, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves.get(best);
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return moves.get(index);
+    }
+
+    private static int historyIndex(ChessPiece piece, int move) {
+        return ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType()) * 64 + PackedMove.to(move);
+    }
+
+    private static boolean isQuiet(int move) {
+        return !PackedMove.hasFlag(move, PackedMove.CAPTURE) && !PackedMove.isPromotion(move);
+    }
+
+    // mate scores are stored relative to the node, so they stay right when reached at another ply
+    private static int toTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+}
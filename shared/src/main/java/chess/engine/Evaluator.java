@@ -0,0 +1,23 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+/**
+ * Static evaluation used at the leaves of the search.
+ * <p>
+ * Material and piece-square scores are maintained incrementally by the board as moves
+ * are made and unmade (see {@link chess.PieceSquareTables}), so a leaf costs O(1)
+ * instead of a scan of every piece.
+ */
+public final class Evaluator {
+
+    private Evaluator() {
+    }
+
+    /**
+     * @return score of the position for the side to move: positive when it is ahead
+     */
+    public static int evaluate(ChessGame game) {
+        return game.evaluate();
+    }
+}
@@ -0,0 +1,96 @@
+package chess.engine;
+
+/**
+ * When a search should stop, and how fast it may go.
+ * <p>
+ * Every limit is optional (0 means none) and the search stops at whichever is hit first.
+ * A search with no depth, node or time limit runs until {@link Engine#stop()} is called.
+ * <pre>
+ *   Limits.moveTime(500).withNodesPerSecond(200_000)
+ * </pre>
+ */
+public final class Limits {
+
+    private final int depth;
+    private final long nodes;
+    private final long moveTimeMillis;
+    private final long nodesPerSecond;
+
+    private Limits(int depth, long nodes, long moveTimeMillis, long nodesPerSecond) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.moveTimeMillis = moveTimeMillis;
+        this.nodesPerSecond = nodesPerSecond;
+    }
+
+    /**
+     * @return no limits at all
+     */
+    public static Limits infinite() {
+        return new Limits(0, 0, 0, 0);
+    }
+
+    public static Limits depth(int depth) {
+        return infinite().withDepth(depth);
+    }
+
+    public static Limits nodes(long nodes) {
+        return infinite().withNodes(nodes);
+    }
+
+    public static Limits moveTime(long millis) {
+        return infinite().withMoveTime(millis);
+    }
+
+    /**
+     * @param depth deepest iteration to search, in plies
+     */
+    public Limits withDepth(int depth) {
+        return new Limits(depth, nodes, moveTimeMillis, nodesPerSecond);
+    }
+
+    /**
+     * @param nodes nodes to visit before stopping
+     */
+    public Limits withNodes(long nodes) {
+        return new Limits(depth, nodes, moveTimeMillis, nodesPerSecond);
+    }
+
+    /**
+     * @param millis wall-clock time the search may take
+     */
+    public Limits withMoveTime(long millis) {
+        return new Limits(depth, nodes, millis, nodesPerSecond);
+    }
+
+    /**
+     * Throttles the search so it visits no more than this many nodes per second,
+     * pausing the searching thread when it gets ahead. Lets a host running many bot
+     * games budget a known amount of CPU for each.
+     */
+    public Limits withNodesPerSecond(long nodesPerSecond) {
+        return new Limits(depth, nodes, moveTimeMillis, nodesPerSecond);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return "Limits{depth=" + depth + ", nodes=" + nodes + ", moveTimeMillis=" + moveTimeMillis
+                + ", nodesPerSecond=" + nodesPerSecond + '}';
+    }
+}
@@ -0,0 +1,121 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one {@link Engine#search search}: the move to play and what the search saw
+ */
+public final class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int[] principalVariation;
+    private final List<ThreadStats> threadStats;
+
+    SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation,
+                 List<ThreadStats> threadStats) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+        this.threadStats = Collections.unmodifiableList(threadStats);
+    }
+
+    /**
+     * @return the move to play, or null if the side to move has no legal move
+     */
+    public ChessMove getBestMove() {
+        return bestMove == 0 ? null : PackedMove.toChessMove(bestMove);
+    }
+
+    /**
+     * @return the move to play as a {@link PackedMove}, or 0 if there is none
+     */
+    public int getPackedBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return evaluation in centipawns from the point of view of the side to move;
+     * see {@link #isMate()} for forced mates
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return true if the score is a forced mate, for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Engine.MATE - Engine.MAX_PLY;
+    }
+
+    /**
+     * @return moves until mate: positive when the side to move mates, negative when it is mated,
+     * 0 when {@link #isMate()} is false
+     */
+    public int getMateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Engine.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    /**
+     * @return deepest iteration that completed
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return nodes visited by all threads together
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (long) (nodes / (elapsedNanos / 1e9));
+    }
+
+    /**
+     * @return the line the search expects, starting with the best move
+     */
+    public List<ChessMove> getPrincipalVariation() {
+        List<ChessMove> line = new ArrayList<>(principalVariation.length);
+        for (int move : principalVariation) {
+            line.add(PackedMove.toChessMove(move));
+        }
+        return line;
+    }
+
+    /**
+     * @return nodes and depth of each search thread, main thread first
+     */
+    public List<ThreadStats> getThreadStats() {
+        return threadStats;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{bestMove=" + getBestMove() + ", score=" + (isMate() ? "mate " + getMateIn() : score)
+                + ", depth=" + depth + ", nodes=" + nodes + ", nps=" + getNodesPerSecond()
+                + ", pv=" + getPrincipalVariation() + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package chess.engine;
+
+/**
+ * What one search thread did during a {@link Engine#search search}
+ */
+public final class ThreadStats {
+
+    private final int thread;
+    private final long nodes;
+    private final int depth;
+    private final long elapsedNanos;
+
+    ThreadStats(int thread, long nodes, int depth, long elapsedNanos) {
+        this.thread = thread;
+        this.nodes = nodes;
+        this.depth = depth;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the thread's number; 0 is the main thread, whose result is returned
+     */
+    public int getThread() {
+        return thread;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return deepest iteration the thread completed
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (long) (nodes / (elapsedNanos / 1e9));
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadStats{thread=" + thread + ", nodes=" + nodes + ", depth=" + depth
+                + ", nps=" + getNodesPerSecond() + '}';
+    }
+}
@@ -0,0 +1,124 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, indexed by the position's Zobrist key and
+ * shared without locks by every thread of a search.
+ * <p>
+ * Each slot is two adjacent longs in one array: the result packed into a single word,
+ * and the position's key XORed with that word:
+ * <pre>
+ *   bits  0-18  best move ({@link chess.PackedMove}), or 0
+ *   bits 19-34  score, 16-bit two's complement
+ *   bits 35-42  depth searched
+ *   bits 43-44  bound: {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+ *   bit  45     always set, so a stored entry is never 0
+ * </pre>
+ * Threads read and write the two words with plain stores, so a reader can see one word
+ * from one write and the other from another. Storing {@code key ^ data} makes such a torn
+ * slot fail the key check on probe, the same as a miss, instead of returning another
+ * position's result. No write is ever blocked or retried.
+ * <p>
+ * A newer result always replaces an older one in its slot, except that an entry without
+ * a move keeps the move already stored for the same position.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    /**
+     * Returned by {@link #probe(long)} when the position is not in the table
+     */
+    public static final long MISS = 0L;
+
+    private static final long MOVE_MASK = (1L << 19) - 1;
+    private static final long PRESENT = 1L << 45;
+
+    // slot i holds key ^ data at 2i and data at 2i + 1, sharing a cache line
+    private final long[] slots;
+    private final int mask;
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of entries
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1024, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 29));
+        this.slots = new long[size * 2];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the packed entry for the position, or {@link #MISS}
+     */
+    public long probe(long key) {
+        int index = ((int) key & mask) << 1;
+        long data = slots[index + 1];
+        return (slots[index] ^ data) == key ? data : MISS;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = ((int) key & mask) << 1;
+        if (move == 0) {
+            long old = slots[index + 1];
+            if ((slots[index] ^ old) == key) {
+                move = move(old);
+            }
+        }
+        long data = pack(move, score, depth, bound);
+        slots[index] = key ^ data;
+        slots[index + 1] = data;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0L);
+    }
+
+    /**
+     * @return number of slots
+     */
+    public int capacity() {
+        return slots.length / 2;
+    }
+
+    /**
+     * @return how full the table is in permille, sampled from the first thousand slots
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (slots[2 * i + 1] != MISS) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    static long pack(int move, int score, int depth, int bound) {
+        return (move & MOVE_MASK)
+                | ((long) (score & 0xFFFF) << 19)
+                | ((long) Math.min(depth, 255) << 35)
+                | ((long) bound << 43)
+                | PRESENT;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 19);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 35) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 43) & 3);
+    }
+}
@@ -0,0 +1,22 @@
+package chess.pgn;
+
+/**
+ * Indicates a PGN record could not be read: a broken tag, an unknown token
+ * or a move that is not legal in the position reached
+ */
+public class PgnFormatException extends Exception {
+
+    private final long offset;
+
+    public PgnFormatException(String message, long offset) {
+        super(message + " at byte " + offset);
+        this.offset = offset;
+    }
+
+    /**
+     * @return byte offset into the file of the token that could not be read
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
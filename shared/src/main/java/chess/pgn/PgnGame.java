@@ -0,0 +1,83 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One game read from a PGN file: its tag pairs, the moves of its main line and the
+ * position they lead to
+ */
+public class PgnGame {
+
+    private final long offset;
+    private final Map<String, String> tags;
+    private final int[] moves;
+    private final String result;
+    private final ChessGame game;
+
+    PgnGame(long offset, Map<String, String> tags, int[] moves, String result, ChessGame game) {
+        this.offset = offset;
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = moves;
+        this.result = result;
+        this.game = game;
+    }
+
+    /**
+     * @return byte offset into the file where the record starts
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return tag pairs in file order, e.g. Event, Site, White, Black
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * @return the main line as {@link PackedMove} ints, replayable with {@link ChessGame#makeMove(int)}
+     */
+    public int[] getPackedMoves() {
+        return moves.clone();
+    }
+
+    public List<ChessMove> getMoves() {
+        List<ChessMove> list = new ArrayList<>(moves.length);
+        for (int move : moves) {
+            list.add(PackedMove.toChessMove(move));
+        }
+        return list;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @return the game termination marker: "1-0", "0-1", "1/2-1/2" or "*"
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * @return the position after the last move. Its undo stack holds the whole game,
+     * so {@link ChessGame#unmakeMove()} walks back through it.
+     */
+    public ChessGame getGame() {
+        return game;
+    }
+}
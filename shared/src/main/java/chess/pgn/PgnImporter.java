@@ -0,0 +1,243 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Imports a PGN file of any size by memory-mapping it in chunks and parsing the chunks
+ * in parallel on a fork-join pool.
+ * <p>
+ * The file is split in halves at game boundaries until each piece is at most the chunk
+ * size; each piece is then mapped and read by its own {@link PgnParser}. Games are handed
+ * to the sink as they are read, so memory use does not grow with the file. Games from
+ * different chunks arrive concurrently and in no particular order; each carries its
+ * byte offset.
+ * <p>
+ * Run from the command line with
+ * <pre>
+ *   java chess.pgn.PgnImporter file.pgn
+ * </pre>
+ */
+public final class PgnImporter {
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    // bytes read at a time while looking for a game boundary near a split point
+    private static final int SCAN_WINDOW = 64 * 1024;
+
+    private PgnImporter() {
+    }
+
+    /**
+     * What an import read, and how fast
+     */
+    public static final class Report {
+
+        private final long games;
+        private final List<PgnFormatException> errors;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Report(long games, List<PgnFormatException> errors, long bytes, long elapsedNanos) {
+            this.games = games;
+            this.errors = errors;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return games read and handed to the sink
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * @return the malformed records that were skipped, in file order
+         */
+        public List<PgnFormatException> getErrors() {
+            return errors;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d games (%,d malformed) from %,d bytes in %.1f ms (%,.0f games/s)",
+                    games, errors.size(), bytes, elapsedNanos / 1e6, getGamesPerSecond());
+        }
+    }
+
+    /**
+     * Imports a file on the common fork-join pool
+     *
+     * @param sink receives each game; it is called from several threads at once
+     */
+    public static Report importFile(Path file, Consumer<PgnGame> sink) throws IOException {
+        return importFile(file, sink, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param sink       receives each game; it is called from the pool's threads concurrently
+     * @param chunkBytes largest piece of the file one parser reads
+     */
+    public static Report importFile(Path file, Consumer<PgnGame> sink, ForkJoinPool pool, int chunkBytes)
+            throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Chunk result;
+            try {
+                result = pool.invoke(new ChunkTask(channel, 0, size, sink, chunkBytes));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            result.errors.sort(Comparator.comparingLong(PgnFormatException::getOffset));
+            return new Report(result.games, result.errors, size, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads every game of an in-memory buffer on the calling thread
+     */
+    public static Report importBuffer(ByteBuffer buffer, Consumer<PgnGame> sink) {
+        long start = System.nanoTime();
+        Chunk result = parse(buffer, 0, sink);
+        return new Report(result.games, result.errors, buffer.remaining(), System.nanoTime() - start);
+    }
+
+    private static Chunk parse(ByteBuffer buffer, long baseOffset, Consumer<PgnGame> sink) {
+        PgnParser parser = new PgnParser(buffer, baseOffset);
+        Chunk chunk = new Chunk();
+        while (true) {
+            PgnGame game;
+            try {
+                game = parser.next();
+            } catch (PgnFormatException e) {
+                chunk.errors.add(e);
+                continue;
+            }
+            if (game == null) {
+                return chunk;
+            }
+            chunk.games++;
+            sink.accept(game);
+        }
+    }
+
+    /**
+     * Looks for the first game that starts at or after {@code from}
+     *
+     * @return its offset, or {@code end} if no game starts before it
+     */
+    private static long findGameStart(FileChannel channel, long from, long end) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(SCAN_WINDOW);
+        // start a little early so the blank line in front of a game at 'from' is seen
+        long windowStart = Math.max(0, from - 3);
+        while (windowStart < end) {
+            window.clear();
+            window.limit((int) Math.min(SCAN_WINDOW, end - windowStart));
+            int read = channel.read(window, windowStart);
+            if (read <= 0) {
+                break;
+            }
+            int found = PgnParser.findGameStart(window, (int) (from - windowStart), read);
+            if (found >= 0) {
+                return windowStart + found;
+            }
+            if (windowStart + read >= end) {
+                break;
+            }
+            // overlap windows so a separator split across them is not missed
+            windowStart += Math.max(1, read - 3);
+            from = windowStart + 3;
+        }
+        return end;
+    }
+
+    /**
+     * Games and errors of one piece of the file
+     */
+    private static final class Chunk {
+        long games;
+        final List<PgnFormatException> errors = new ArrayList<>();
+
+        Chunk merge(Chunk other) {
+            games += other.games;
+            errors.addAll(other.errors);
+            return this;
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final Consumer<PgnGame> sink;
+        private final int chunkBytes;
+
+        ChunkTask(FileChannel channel, long start, long end, Consumer<PgnGame> sink, int chunkBytes) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.sink = sink;
+            this.chunkBytes = chunkBytes;
+        }
+
+        @Override
+        protected Chunk compute() {
+            try {
+                if (end - start > chunkBytes) {
+                    long split = findGameStart(channel, start + (end - start) / 2, end);
+                    if (split < end) {
+                        ChunkTask first = new ChunkTask(channel, start, split, sink, chunkBytes);
+                        ChunkTask second = new ChunkTask(channel, split, end, sink, chunkBytes);
+                        first.fork();
+                        return second.compute().merge(first.join());
+                    }
+                }
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("No game boundary between bytes " + start + " and " + end);
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                return parse(mapped, start, sink);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java chess.pgn.PgnImporter <file.pgn>");
+            return;
+        }
+        Report report = importFile(Path.of(args[0]), game -> { });
+        System.out.println(report);
+        for (PgnFormatException error : report.getErrors().subList(0, Math.min(20, report.getErrors().size()))) {
+            System.out.println("  " + error.getMessage());
+        }
+    }
+}
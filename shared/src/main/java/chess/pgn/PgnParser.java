@@ -0,0 +1,460 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads PGN games one at a time from a byte buffer, such as a memory-mapped slice of a file.
+ * <p>
+ * The buffer is read in place by absolute index, so only the games themselves (tags,
+ * move arrays and final positions) are allocated. Comments, NAGs and variations are
+ * skipped; SAN moves of the main line are resolved against the legal moves of the
+ * position reached and played with {@link ChessGame#makeMove(int)}.
+ * <p>
+ * A malformed record is reported with its byte offset and the parser moves on to the
+ * start of the next record, so one bad game does not stop an import.
+ */
+public class PgnParser {
+
+    private static final ChessPiece.PieceType[] PIECE_BY_LETTER = new ChessPiece.PieceType[128];
+
+    static {
+        PIECE_BY_LETTER['K'] = ChessPiece.PieceType.KING;
+        PIECE_BY_LETTER['Q'] = ChessPiece.PieceType.QUEEN;
+        PIECE_BY_LETTER['B'] = ChessPiece.PieceType.BISHOP;
+        PIECE_BY_LETTER['N'] = ChessPiece.PieceType.KNIGHT;
+        PIECE_BY_LETTER['R'] = ChessPiece.PieceType.ROOK;
+    }
+
+    private final ByteBuffer buffer;
+    private final long baseOffset;
+    private final int end;
+    private int pos;
+
+    // scratch space reused from game to game
+    private final MoveList legalMoves = new MoveList();
+    private byte[] text = new byte[64];
+    private int[] moves = new int[256];
+
+    /**
+     * @param buffer     bytes from its position to its limit are parsed; the buffer's own
+     *                   position is left alone
+     * @param baseOffset file offset of index 0 of the buffer, used in error reports
+     */
+    public PgnParser(ByteBuffer buffer, long baseOffset) {
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+        this.pos = buffer.position();
+        this.end = buffer.limit();
+    }
+
+    /**
+     * @return the next game, or null once the buffer is exhausted
+     * @throws PgnFormatException if the next record is malformed; the parser has already
+     *                            skipped past it, so calling again continues with the following record
+     */
+    public PgnGame next() throws PgnFormatException {
+        skipSeparators();
+        // byte order mark at the start of a file
+        if (pos + 2 < end && byteAt(pos) == (byte) 0xEF && byteAt(pos + 1) == (byte) 0xBB
+                && byteAt(pos + 2) == (byte) 0xBF) {
+            pos += 3;
+            skipSeparators();
+        }
+        if (pos >= end) {
+            return null;
+        }
+
+        int start = pos;
+        try {
+            return readGame(start);
+        } catch (PgnFormatException e) {
+            int resume = findGameStart(buffer, Math.max(pos, start + 1), end);
+            pos = resume < 0 ? end : resume;
+            throw e;
+        }
+    }
+
+    /**
+     * Finds where a record starts: a '[' opening a line that follows a blank line,
+     * the separator every PGN exporter writes between games
+     *
+     * @return index of that '[' at or after {@code from}, or -1 if there is none before {@code end}
+     */
+    static int findGameStart(ByteBuffer buffer, int from, int end) {
+        for (int i = Math.max(from, 2); i < end; i++) {
+            if (buffer.get(i) == '[' && buffer.get(i - 1) == '\n') {
+                byte before = buffer.get(i - 2);
+                if (before == '\n' || (before == '\r' && i >= 3 && buffer.get(i - 3) == '\n')) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private PgnGame readGame(int start) throws PgnFormatException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        while (pos < end && byteAt(pos) == '[') {
+            readTag(tags);
+            skipSeparators();
+        }
+
+        ChessGame game;
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            try {
+                game = ChessGame.fromFen(fen);
+            } catch (IllegalArgumentException e) {
+                throw error("Bad FEN tag: " + e.getMessage(), start);
+            }
+        } else {
+            game = new ChessGame();
+        }
+
+        int moveCount = 0;
+        String result = "*";
+        while (true) {
+            skipSeparators();
+            if (pos >= end || byteAt(pos) == '[') {
+                // no termination marker; the record ends where the next one begins
+                break;
+            }
+
+            int tokenStart = pos;
+            while (pos < end && !isTokenEnd(byteAt(pos))) {
+                pos++;
+            }
+            int tokenEnd = pos;
+            if (tokenEnd == tokenStart) {
+                throw error("Unexpected '" + (char) byteAt(pos) + "'", pos);
+            }
+
+            String termination = termination(tokenStart, tokenEnd);
+            if (termination != null) {
+                result = termination;
+                break;
+            }
+
+            // en passant mark some exporters write after the capture
+            if (tokenEnd - tokenStart == 4 && matches(tokenStart, "e.p.")) {
+                continue;
+            }
+
+            // move number indication, possibly run together with the move ("12.e4", "12...Nf6")
+            int sanStart = tokenStart;
+            if (isDigit(byteAt(sanStart)) && !isCastling(sanStart, trimSuffix(sanStart, tokenEnd))) {
+                while (sanStart < tokenEnd && isDigit(byteAt(sanStart))) {
+                    sanStart++;
+                }
+                if (sanStart == tokenEnd || byteAt(sanStart) != '.') {
+                    throw error("Unexpected token '" + ascii(tokenStart, tokenEnd) + "'", tokenStart);
+                }
+                while (sanStart < tokenEnd && byteAt(sanStart) == '.') {
+                    sanStart++;
+                }
+                if (sanStart == tokenEnd) {
+                    continue;
+                }
+            }
+
+            int move = resolveSan(game, sanStart, tokenEnd);
+            game.makeMove(move);
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+            }
+            moves[moveCount++] = move;
+        }
+        return new PgnGame(baseOffset + start, tags, Arrays.copyOf(moves, moveCount), result, game);
+    }
+
+    private void readTag(Map<String, String> tags) throws PgnFormatException {
+        int open = pos++;
+        skipSpaces();
+        int nameStart = pos;
+        while (pos < end && isSymbolChar(byteAt(pos))) {
+            pos++;
+        }
+        if (pos == nameStart) {
+            throw error("Tag without a name", open);
+        }
+        String name = ascii(nameStart, pos);
+
+        skipSpaces();
+        if (pos >= end || byteAt(pos) != '"') {
+            throw error("Tag " + name + " has no quoted value", pos);
+        }
+        pos++;
+        int length = 0;
+        while (true) {
+            if (pos >= end || byteAt(pos) == '\n') {
+                throw error("Unterminated value for tag " + name, open);
+            }
+            byte b = byteAt(pos++);
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\' && pos < end) {
+                b = byteAt(pos++);
+            }
+            if (length == text.length) {
+                text = Arrays.copyOf(text, length * 2);
+            }
+            text[length++] = b;
+        }
+
+        skipSpaces();
+        if (pos >= end || byteAt(pos) != ']') {
+            throw error("Tag " + name + " is not closed", pos);
+        }
+        pos++;
+        tags.put(name, new String(text, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Matches a SAN move ("e4", "exd5", "Nbd7", "R1e2", "e8=Q+", "O-O-O") against the legal moves
+     */
+    private int resolveSan(ChessGame game, int start, int end) throws PgnFormatException {
+        int last = trimSuffix(start, end);
+
+        legalMoves.clear();
+        game.legalMoves(legalMoves);
+
+        if (isCastling(start, last)) {
+            boolean kingside = last - start == 3;
+            for (int i = 0; i < legalMoves.size(); i++) {
+                int move = legalMoves.get(i);
+                if (PackedMove.hasFlag(move, PackedMove.CASTLE)
+                        && (PackedMove.to(move) > PackedMove.from(move)) == kingside) {
+                    return move;
+                }
+            }
+            throw error("Illegal castling '" + ascii(start, end) + "'", start);
+        }
+
+        int i = start;
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        byte first = byteAt(i);
+        if (first >= 0 && PIECE_BY_LETTER[first] != null) {
+            type = PIECE_BY_LETTER[first];
+            i++;
+        }
+
+        ChessPiece.PieceType promotion = null;
+        if (type == ChessPiece.PieceType.PAWN && last - i > 2) {
+            byte piece = byteAt(last - 1);
+            if (piece >= 0 && PIECE_BY_LETTER[piece] != null && piece != 'K') {
+                promotion = PIECE_BY_LETTER[piece];
+                last--;
+                if (byteAt(last - 1) == '=') {
+                    last--;
+                }
+            }
+        }
+
+        if (last - i < 2 || !isFile(byteAt(last - 2)) || !isRank(byteAt(last - 1))) {
+            throw error("Unreadable move '" + ascii(start, end) + "'", start);
+        }
+        int to = ChessBoard.squareIndex(byteAt(last - 1) - '0', byteAt(last - 2) - 'a' + 1);
+
+        // disambiguation: origin file and/or rank, ignoring capture and long-algebraic dashes
+        int fromCol = 0;
+        int fromRow = 0;
+        for (int j = i; j < last - 2; j++) {
+            byte b = byteAt(j);
+            if (isFile(b)) {
+                fromCol = b - 'a' + 1;
+            } else if (isRank(b)) {
+                fromRow = b - '0';
+            } else if (b != 'x' && b != ':' && b != '-') {
+                throw error("Unreadable move '" + ascii(start, end) + "'", start);
+            }
+        }
+
+        ChessBoard board = game.getBoard();
+        int found = -1;
+        for (int m = 0; m < legalMoves.size(); m++) {
+            int move = legalMoves.get(m);
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to
+                    || board.getPiece(from).getPieceType() != type
+                    || PackedMove.promotion(move) != promotion
+                    || (fromCol != 0 && (from & 7) + 1 != fromCol)
+                    || (fromRow != 0 && (from >>> 3) + 1 != fromRow)) {
+                continue;
+            }
+            if (found >= 0) {
+                throw error("Ambiguous move '" + ascii(start, end) + "'", start);
+            }
+            found = move;
+        }
+        if (found < 0) {
+            throw error("Illegal move '" + ascii(start, end) + "'", start);
+        }
+        return found;
+    }
+
+    /**
+     * Drops check / mate marks and annotation glyphs, which say nothing about which move it is
+     *
+     * @return new end of the token
+     */
+    private int trimSuffix(int start, int end) {
+        while (end > start && isSuffix(byteAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return the game termination marker spelled by the token, or null
+     */
+    private String termination(int start, int end) {
+        return switch (end - start) {
+            case 1 -> byteAt(start) == '*' ? "*" : null;
+            case 3 -> matches(start, "1-0") ? "1-0" : matches(start, "0-1") ? "0-1" : null;
+            case 7 -> matches(start, "1/2-1/2") ? "1/2-1/2" : null;
+            default -> null;
+        };
+    }
+
+    private boolean isCastling(int start, int end) {
+        int length = end - start;
+        if (length != 3 && length != 5) {
+            return false;
+        }
+        byte o = byteAt(start);
+        if (o != 'O' && o != '0') {
+            return false;
+        }
+        for (int i = start; i < end; i += 2) {
+            if (byteAt(i) != o || (i + 1 < end && byteAt(i + 1) != '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips whitespace, {comments}, ;line comments, %escape lines, $NAGs and (variations)
+     */
+    private void skipSeparators() throws PgnFormatException {
+        while (pos < end) {
+            byte b = byteAt(pos);
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                pos++;
+            } else if (b == '{') {
+                skipComment();
+            } else if (b == ';' || (b == '%' && (pos == 0 || byteAt(pos - 1) == '\n'))) {
+                while (pos < end && byteAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (b == '$') {
+                pos++;
+                while (pos < end && isDigit(byteAt(pos))) {
+                    pos++;
+                }
+            } else if (b == '(') {
+                skipVariation();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipComment() throws PgnFormatException {
+        int open = pos;
+        while (pos < end && byteAt(pos) != '}') {
+            pos++;
+        }
+        if (pos >= end) {
+            throw error("Unterminated comment", open);
+        }
+        pos++;
+    }
+
+    private void skipVariation() throws PgnFormatException {
+        int open = pos;
+        int depth = 0;
+        while (pos < end) {
+            byte b = byteAt(pos);
+            if (b == '{') {
+                skipComment();
+                continue;
+            }
+            if (b == '(') {
+                depth++;
+            } else if (b == ')' && --depth == 0) {
+                pos++;
+                return;
+            }
+            pos++;
+        }
+        throw error("Unterminated variation", open);
+    }
+
+    private void skipSpaces() {
+        while (pos < end && (byteAt(pos) == ' ' || byteAt(pos) == '\t')) {
+            pos++;
+        }
+    }
+
+    private boolean matches(int start, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (byteAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String ascii(int start, int end) {
+        StringBuilder token = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            token.append((char) (byteAt(i) & 0xFF));
+        }
+        return token.toString();
+    }
+
+    private PgnFormatException error(String message, int index) {
+        return new PgnFormatException(message, baseOffset + index);
+    }
+
+    private byte byteAt(int index) {
+        return buffer.get(index);
+    }
+
+    private static boolean isTokenEnd(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t'
+                || b == '{' || b == '(' || b == ')' || b == ';' || b == '[' || b == '$';
+    }
+
+    private static boolean isSymbolChar(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || isDigit(b) || b == '_';
+    }
+
+    private static boolean isSuffix(byte b) {
+        return b == '+' || b == '#' || b == '!' || b == '?';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isFile(byte b) {
+        return b >= 'a' && b <= 'h';
+    }
+
+    private static boolean isRank(byte b) {
+        return b >= '1' && b <= '8';
+    }
+}
@@ -0,0 +1,276 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.Arrays;
+
+/**
+ * The pieces on the board, such as "KQK" or "KRKP": white's pieces starting with its king,
+ * then black's. A tablebase covers exactly one material and positions are indexed by it.
+ * <p>
+ * A position's index is the squares of its pieces, six bits each in signature order,
+ * followed by one bit for the side to move. Every placement gets an index, legal or not,
+ * which wastes some space but makes indexing a handful of shifts.
+ * <p>
+ * Only one of a material and its color-reversed twin (KRK and KKR) gets a table: the one
+ * where white has the stronger side, which this calls canonical. Positions with the
+ * other material are looked up with colors swapped and the board mirrored top to bottom.
+ */
+public final class Material {
+
+    /**
+     * Most pieces a table can cover; each one more multiplies its size by 64
+     */
+    public static final int MAX_PIECES = 4;
+
+    // signature order, strongest first
+    private static final String LETTERS = "KQRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {
+            ChessPiece.PieceType.KING, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN};
+
+    // how many of each piece, by ChessBoard.pieceIndex
+    private final int[] counts;
+    // piece index of each slot, in signature order
+    private final int[] slots;
+    private final String signature;
+
+    private Material(int[] counts) {
+        this.counts = counts;
+        StringBuilder signature = new StringBuilder();
+        int[] slots = new int[Arrays.stream(counts).sum()];
+        int size = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (int t = 0; t < TYPES.length; t++) {
+                int piece = ChessBoard.pieceIndex(color, TYPES[t]);
+                for (int i = 0; i < counts[piece]; i++) {
+                    slots[size++] = piece;
+                    signature.append(LETTERS.charAt(t));
+                }
+            }
+        }
+        this.slots = slots;
+        this.signature = signature.toString();
+    }
+
+    /**
+     * @param signature e.g. "KQK" or "KRKP"
+     * @throws IllegalArgumentException if it is not one king and up to {@link #MAX_PIECES}
+     *                                  pieces in all for each side
+     */
+    public static Material parse(String signature) {
+        int blackKing = signature.indexOf('K', 1);
+        if (!signature.startsWith("K") || blackKing < 0 || signature.indexOf('K', blackKing + 1) >= 0) {
+            throw new IllegalArgumentException("Invalid material: " + signature);
+        }
+        int[] counts = new int[12];
+        for (int i = 0; i < signature.length(); i++) {
+            int t = LETTERS.indexOf(signature.charAt(i));
+            if (t < 0) {
+                throw new IllegalArgumentException("Invalid material: " + signature);
+            }
+            ChessGame.TeamColor color = i < blackKing ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            counts[ChessBoard.pieceIndex(color, TYPES[t])]++;
+        }
+        return checked(counts, signature);
+    }
+
+    /**
+     * @param bitboards one per piece, indexed by {@link ChessBoard#pieceIndex}
+     * @return the material on the board, or null if a king is missing or there are more
+     * than {@link #MAX_PIECES} pieces
+     */
+    public static Material of(long[] bitboards) {
+        int[] counts = new int[12];
+        int total = 0;
+        for (int i = 0; i < 12; i++) {
+            counts[i] = Long.bitCount(bitboards[i]);
+            total += counts[i];
+        }
+        if (total > MAX_PIECES || counts[kingIndex(ChessGame.TeamColor.WHITE)] != 1
+                || counts[kingIndex(ChessGame.TeamColor.BLACK)] != 1) {
+            return null;
+        }
+        return new Material(counts);
+    }
+
+    private static Material checked(int[] counts, String signature) {
+        int total = Arrays.stream(counts).sum();
+        if (total > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables cover at most " + MAX_PIECES + " pieces: " + signature);
+        }
+        return new Material(counts);
+    }
+
+    /**
+     * @return the board's pieces as twelve bitboards, the form the other methods take
+     */
+    public static long[] bitboards(ChessBoard board) {
+        long[] bitboards = new long[12];
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                bitboards[ChessBoard.pieceIndex(color, type)] = board.getBitboard(color, type);
+            }
+        }
+        return bitboards;
+    }
+
+    /**
+     * Swaps the colors of every piece and mirrors the board top to bottom, in place
+     */
+    public static void flip(long[] bitboards) {
+        for (int i = 0; i < 6; i++) {
+            long white = bitboards[i];
+            bitboards[i] = Long.reverseBytes(bitboards[i + 6]);
+            bitboards[i + 6] = Long.reverseBytes(white);
+        }
+    }
+
+    /**
+     * @return the same pieces with colors swapped
+     */
+    public Material flipped() {
+        int[] flipped = new int[12];
+        for (int i = 0; i < 6; i++) {
+            flipped[i] = counts[i + 6];
+            flipped[i + 6] = counts[i];
+        }
+        return new Material(flipped);
+    }
+
+    /**
+     * @return whether this is the color arrangement that gets a table: white's pieces are
+     * more, or as many and stronger, than black's
+     */
+    public boolean isCanonical() {
+        int split = signature.indexOf('K', 1);
+        String white = signature.substring(0, split);
+        String black = signature.substring(split);
+        if (white.length() != black.length()) {
+            return white.length() > black.length();
+        }
+        for (int i = 0; i < white.length(); i++) {
+            int w = LETTERS.indexOf(white.charAt(i));
+            int b = LETTERS.indexOf(black.charAt(i));
+            if (w != b) {
+                return w < b;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the material with {@code delta} more of one piece, for captures and promotions
+     */
+    Material with(int piece, int delta) {
+        int[] changed = counts.clone();
+        changed[piece] += delta;
+        return new Material(changed);
+    }
+
+    public Material canonical() {
+        return isCanonical() ? this : flipped();
+    }
+
+    /**
+     * @return whether neither side can ever mate: bare kings, or a lone minor piece
+     */
+    public boolean isTrivialDraw() {
+        if (slots.length == 2) {
+            return true;
+        }
+        if (slots.length == 3) {
+            for (int piece : slots) {
+                ChessPiece.PieceType type = ChessPiece.PieceType.values()[piece % 6];
+                if (type == ChessPiece.PieceType.BISHOP || type == ChessPiece.PieceType.KNIGHT) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether both sides have a pawn, so a double push can allow an en passant
+     * capture that a position's index does not record
+     */
+    public boolean hasOpposingPawns() {
+        int pawn = ChessPiece.PieceType.PAWN.ordinal();
+        return counts[pawn] > 0 && counts[6 + pawn] > 0;
+    }
+
+    public int pieceCount() {
+        return slots.length;
+    }
+
+    /**
+     * @return the {@link ChessBoard#pieceIndex} of the piece in a slot, in signature order
+     */
+    public int piece(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @return number of indexes, and so the byte size of a table
+     */
+    public int positions() {
+        return 2 << (6 * slots.length);
+    }
+
+    /**
+     * @param bitboards pieces matching this material
+     */
+    public int index(long[] bitboards, boolean blackToMove) {
+        int index = 0;
+        int last = -1;
+        for (int piece : slots) {
+            if (piece == last) {
+                // identical pieces were all placed with the first of their slots
+                continue;
+            }
+            last = piece;
+            for (long bits = bitboards[piece]; bits != 0; bits &= bits - 1) {
+                index = (index << 6) | Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return (index << 1) | (blackToMove ? 1 : 0);
+    }
+
+    /**
+     * @return the square of the piece in a slot at an index
+     */
+    public int square(int index, int slot) {
+        return (index >>> (1 + 6 * (slots.length - 1 - slot))) & 63;
+    }
+
+    public static boolean blackToMove(int index) {
+        return (index & 1) != 0;
+    }
+
+    private static int kingIndex(ChessGame.TeamColor color) {
+        return ChessBoard.pieceIndex(color, ChessPiece.PieceType.KING);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Material material = (Material) o;
+        return signature.equals(material.signature);
+    }
+
+    @Override
+    public int hashCode() {
+        return signature.hashCode();
+    }
+
+    /**
+     * @return the signature, e.g. "KQK"
+     */
+    @Override
+    public String toString() {
+        return signature;
+    }
+}
@@ -0,0 +1,253 @@
+package chess.tablebase;
+
+import chess.ChessGame;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.engine.Engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Probes endgame tables written by {@link TablebaseGenerator}, each memory-mapped from
+ * its file so a probe is an index computation and a single byte read.
+ * <p>
+ * A table holds one byte per index of its {@link Material}, giving the outcome with best
+ * play for the side to move and the distance to mate in plies:
+ * <pre>
+ *   0       draw (also every illegal placement)
+ *   d > 0   win, mating in d plies
+ *   d < 0   loss, mated in -d - 1 plies; -1 is checkmated already
+ * </pre>
+ * Tables assume no castling rights and no en passant capture; positions with either,
+ * like those with a material that has no table, are not found. The fifty-move rule is
+ * ignored.
+ * <p>
+ * A file is a 16-byte little-endian header (int magic "TBSE", int version, long number
+ * of positions) followed by the values, and is named after its material, e.g. KQK.tb.
+ */
+public class Tablebase implements AutoCloseable {
+
+    /**
+     * Returned by {@link #probe(ChessGame)} for positions no table covers
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    static final int MAGIC = 0x45534254; // "TBSE" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final String EXTENSION = ".tb";
+
+    private final Map<Material, MappedByteBuffer> tables;
+    private final List<FileChannel> channels;
+
+    private Tablebase(Map<Material, MappedByteBuffer> tables, List<FileChannel> channels) {
+        this.tables = tables;
+        this.channels = channels;
+    }
+
+    /**
+     * Maps every table in a directory
+     *
+     * @throws IOException if a table cannot be read or is damaged
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Map<Material, MappedByteBuffer> tables = new HashMap<>();
+        List<FileChannel> channels = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                Material material = materialOf(file);
+                if (material.hasOpposingPawns()) {
+                    throw new IOException(file + " has pawns on both sides, which tables cannot model");
+                }
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                channels.add(channel);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                checkHeader(mapped, material, file);
+                tables.put(material, mapped);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            throw e;
+        }
+        return new Tablebase(tables, channels);
+    }
+
+    /**
+     * @return whether positions with the material, in either color arrangement, can be probed
+     */
+    public boolean covers(Material material) {
+        Material canonical = material.canonical();
+        return canonical.isTrivialDraw() || tables.containsKey(canonical);
+    }
+
+    /**
+     * @return number of tables open
+     */
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * @return the value of the game's position for the side to move, as described above,
+     * or {@link #NOT_FOUND}
+     */
+    public int probe(ChessGame game) {
+        if (game.getCastlingRights() != 0 || game.getEnPassantSquare() >= 0) {
+            return NOT_FOUND;
+        }
+        long[] bitboards = Material.bitboards(game.getBoard());
+        Material material = Material.of(bitboards);
+        if (material == null) {
+            return NOT_FOUND;
+        }
+        if (material.isTrivialDraw()) {
+            return 0;
+        }
+        boolean blackToMove = game.getTeamTurn() == ChessGame.TeamColor.BLACK;
+        if (!material.isCanonical()) {
+            Material.flip(bitboards);
+            material = material.flipped();
+            blackToMove = !blackToMove;
+        }
+        MappedByteBuffer table = tables.get(material);
+        return table == null ? NOT_FOUND : table.get(HEADER_BYTES + material.index(bitboards, blackToMove));
+    }
+
+    /**
+     * Picks the fastest mate when winning, a move that holds the draw when drawing, and
+     * the longest resistance when losing
+     *
+     * @return the move as a {@link PackedMove}, or {@link PackedMove#NONE} if the position
+     * is not covered or has no moves
+     */
+    public int bestMove(ChessGame game) {
+        if (probe(game) == NOT_FOUND) {
+            return PackedMove.NONE;
+        }
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        int best = PackedMove.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            int reply = probe(game);
+            game.unmakeMove();
+            // a double push that allows en passant is not covered; the other moves will do
+            if (reply != NOT_FOUND && -toScore(reply) > bestScore) {
+                bestScore = -toScore(reply);
+                best = moves.get(i);
+            }
+        }
+        return best;
+    }
+
+    public static boolean isWin(int value) {
+        return value > 0;
+    }
+
+    public static boolean isLoss(int value) {
+        return value < 0 && value != NOT_FOUND;
+    }
+
+    public static boolean isDraw(int value) {
+        return value == 0;
+    }
+
+    /**
+     * @return plies until mate, won or lost; 0 for a draw
+     */
+    public static int pliesToMate(int value) {
+        return value > 0 ? value : value < 0 ? -value - 1 : 0;
+    }
+
+    /**
+     * @return the value as an engine score from the side to move's point of view, with
+     * mates scored like {@link Engine#MATE} minus the plies to mate
+     */
+    public static int toScore(int value) {
+        if (value == 0) {
+            return 0;
+        }
+        return value > 0 ? Engine.MATE - value : -(Engine.MATE - pliesToMate(value));
+    }
+
+    static Path file(Path directory, Material material) {
+        return directory.resolve(material + EXTENSION);
+    }
+
+    static void write(Path file, Material material, byte[] values) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(values.length).flip();
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(values);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            channel.force(true);
+        }
+        // a table only appears under its real name once it is complete
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads a table into memory, for the generator to look up while building larger ones
+     */
+    static byte[] read(Path file, Material material) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        checkHeader(buffer, material, file);
+        return Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length);
+    }
+
+    private static Material materialOf(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        try {
+            return Material.parse(name.substring(0, name.length() - EXTENSION.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a tablebase file: " + file, e);
+        }
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Material material, Path file) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tablebase file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported tablebase version " + buffer.getInt(4) + ": " + file);
+        }
+        if (!material.isCanonical() || buffer.getLong(8) != material.positions()
+                || buffer.limit() != HEADER_BYTES + material.positions()) {
+            throw new IOException("Damaged tablebase file: " + file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package chess.tablebase;
+
+import chess.AttackTables;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds endgame tables by retrograde analysis and writes them for {@link Tablebase}.
+ * <p>
+ * A table is solved in two passes over every index of its {@link Material}:
+ * <ol>
+ *   <li>In parallel on a fork-join pool, each legal position counts its moves that keep
+ *   the material. Captures and promotions change the material, so their outcome is read
+ *   from the smaller table they lead to, which is generated first. Mates are found here.</li>
+ *   <li>Working back from the mates one ply at a time, a position with a move into a lost
+ *   position is won, and a position whose every move reaches a won position is lost. The
+ *   positions a move could have come from are found by playing moves backward. Whatever
+ *   is never reached is a draw.</li>
+ * </ol>
+ * Because results are settled in order of distance, every win is the fastest mate and
+ * every loss the slowest. Moves are generated straight from {@link AttackTables}, the
+ * same tables behind {@link ChessPiece#pieceMoves}, since a table of four pieces has
+ * tens of millions of positions and a {@link ChessGame} for each would be far too slow.
+ * <p>
+ * Materials with a pawn on each side, such as KPKP, are refused: after a double push the
+ * reply may be an en passant capture, which a table index has no room to record, so
+ * solving them as if it were impossible would give wrong values.
+ * <p>
+ * Run from the command line with
+ * <pre>
+ *   java chess.tablebase.TablebaseGenerator directory KQK KRK KPK ...
+ * </pre>
+ */
+public class TablebaseGenerator {
+
+    // longest distance a table byte holds
+    private static final int MAX_DISTANCE = 127;
+    // a counter that no number of won replies can bring to zero
+    private static final short NEVER_LOST = Short.MAX_VALUE;
+    // indexes per fork-join leaf
+    private static final int BATCH = 1 << 14;
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+    // values of every table generated or loaded so far, by canonical material
+    private final Map<Material, byte[]> tables = new HashMap<>();
+
+    public TablebaseGenerator(Path directory) {
+        this(directory, ForkJoinPool.commonPool());
+    }
+
+    public TablebaseGenerator(Path directory, ForkJoinPool pool) {
+        this.directory = directory;
+        this.pool = pool;
+    }
+
+    /**
+     * @see #generate(Material)
+     */
+    public Material generate(String signature) throws IOException {
+        return generate(Material.parse(signature));
+    }
+
+    /**
+     * Writes the table for a material, after every table its captures and promotions lead
+     * to. Tables already in the directory are loaded instead of generated again.
+     *
+     * @return the canonical material, which names the table
+     * @throws IllegalArgumentException if both sides have a pawn
+     */
+    public synchronized Material generate(Material material) throws IOException {
+        Material canonical = material.canonical();
+        if (canonical.hasOpposingPawns()) {
+            throw new IllegalArgumentException(canonical + " has pawns on both sides; en passant is not modelled");
+        }
+        if (canonical.isTrivialDraw() || tables.containsKey(canonical)) {
+            return canonical;
+        }
+        Path file = Tablebase.file(directory, canonical);
+        if (Files.exists(file)) {
+            tables.put(canonical, Tablebase.read(file, canonical));
+            return canonical;
+        }
+        for (Material next : successors(canonical)) {
+            generate(next);
+        }
+        Files.createDirectories(directory);
+        byte[] values = new Solver(canonical).solve();
+        Tablebase.write(file, canonical, values);
+        tables.put(canonical, values);
+        return canonical;
+    }
+
+    /**
+     * @return the materials one capture or promotion away
+     */
+    private static List<Material> successors(Material material) {
+        List<Material> successors = new ArrayList<>();
+        for (int slot = 0; slot < material.pieceCount(); slot++) {
+            int piece = material.piece(slot);
+            ChessPiece.PieceType type = type(piece);
+            if (type == ChessPiece.PieceType.KING) {
+                continue;
+            }
+            successors.add(material.with(piece, -1));
+            if (type == ChessPiece.PieceType.PAWN) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    successors.add(material.with(piece, -1).with(piece - 5 + promotion.ordinal(), 1));
+                }
+            }
+        }
+        return successors;
+    }
+
+    private static ChessPiece.PieceType type(int piece) {
+        return ChessPiece.PieceType.values()[piece % 6];
+    }
+
+    /**
+     * @return the value for the side to move of a position reached by a capture or
+     * promotion, from the tables generated before; the bitboards may be flipped
+     */
+    private int lookup(long[] bitboards, boolean blackToMove) {
+        Material material = Material.of(bitboards);
+        if (material.isTrivialDraw()) {
+            return 0;
+        }
+        if (!material.isCanonical()) {
+            Material.flip(bitboards);
+            material = material.flipped();
+            blackToMove = !blackToMove;
+        }
+        return tables.get(material)[material.index(bitboards, blackToMove)];
+    }
+
+    /**
+     * Growable list of queued indexes, each tagged as a win or a loss in its low bit
+     */
+    private static final class Bucket {
+        int[] entries = new int[64];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    /**
+     * Solves one material's table
+     */
+    private final class Solver {
+
+        private static final int WIN = 0;
+        private static final int LOSS = 1;
+
+        private final Material material;
+        private final byte[] values;
+        // in-table moves not yet known to reach a won position
+        private final short[] counters;
+        // fastest win through a capture or promotion, 0 if none
+        private final byte[] exitWins;
+        // slowest loss through a capture or promotion, as plies
+        private final byte[] exitLosses;
+        private final Bucket[] buckets = new Bucket[MAX_DISTANCE + 1];
+
+        Solver(Material material) {
+            this.material = material;
+            int positions = material.positions();
+            this.values = new byte[positions];
+            this.counters = new short[positions];
+            this.exitWins = new byte[positions];
+            this.exitLosses = new byte[positions];
+            for (int d = 0; d < buckets.length; d++) {
+                buckets[d] = new Bucket();
+            }
+        }
+
+        byte[] solve() {
+            pool.invoke(new CountTask(0, values.length));
+            for (int index = 0; index < values.length; index++) {
+                if (counters[index] == 0) {
+                    schedule(index, LOSS, exitLosses[index]);
+                }
+                if (exitWins[index] > 0) {
+                    schedule(index, WIN, exitWins[index]);
+                }
+            }
+
+            Walker walker = new Walker(material);
+            int[] predecessors = new int[256];
+            for (int d = 0; d < buckets.length; d++) {
+                Bucket bucket = buckets[d];
+                for (int e = 0; e < bucket.size; e++) {
+                    int index = bucket.entries[e] >>> 1;
+                    int kind = bucket.entries[e] & 1;
+                    if (values[index] != 0) {
+                        continue;
+                    }
+                    values[index] = (byte) (kind == WIN ? d : -d - 1);
+                    int count = walker.predecessors(index, predecessors);
+                    for (int p = 0; p < count; p++) {
+                        int previous = predecessors[p];
+                        if (values[previous] != 0) {
+                            continue;
+                        }
+                        if (kind == LOSS) {
+                            schedule(previous, WIN, d + 1);
+                        } else if (--counters[previous] == 0) {
+                            schedule(previous, LOSS, Math.max(d + 1, exitLosses[previous]));
+                        }
+                    }
+                }
+                buckets[d] = null;
+            }
+            return values;
+        }
+
+        private void schedule(int index, int kind, int distance) {
+            if (distance > MAX_DISTANCE) {
+                throw new IllegalStateException("Mate too distant for a table byte in " + material);
+            }
+            buckets[distance].add(index << 1 | kind);
+        }
+
+        /**
+         * Counts moves and settles captures and promotions for a range of indexes
+         */
+        private final class CountTask extends RecursiveAction {
+
+            private final int from;
+            private final int to;
+
+            CountTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > BATCH) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new CountTask(from, mid), new CountTask(mid, to));
+                    return;
+                }
+                Walker walker = new Walker(material);
+                for (int index = from; index < to; index++) {
+                    walker.count(index, Solver.this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scratch board for one thread: the squares of each slot of a material, with moves
+     * played forward for counting and backward for predecessors
+     */
+    private final class Walker {
+
+        private final Material material;
+        private final int n;
+        private final int[] pieces;
+        private final int[] colors;
+        private final int[] kings = new int[2];
+        private final int[] squares;
+        private final long[] bitboards = new long[12];
+        private long occupied;
+
+        Walker(Material material) {
+            this.material = material;
+            this.n = material.pieceCount();
+            this.pieces = new int[n];
+            this.colors = new int[n];
+            this.squares = new int[n];
+            for (int slot = 0; slot < n; slot++) {
+                pieces[slot] = material.piece(slot);
+                colors[slot] = pieces[slot] / 6;
+                if (type(pieces[slot]) == ChessPiece.PieceType.KING) {
+                    kings[colors[slot]] = slot;
+                }
+            }
+        }
+
+        /**
+         * Loads an index
+         *
+         * @return whether it is a legal position
+         */
+        private boolean load(int index) {
+            occupied = 0;
+            for (int slot = 0; slot < n; slot++) {
+                int square = material.square(index, slot);
+                long bit = 1L << square;
+                if ((occupied & bit) != 0) {
+                    return false;
+                }
+                if (type(pieces[slot]) == ChessPiece.PieceType.PAWN && (square < 8 || square >= 56)) {
+                    return false;
+                }
+                squares[slot] = square;
+                occupied |= bit;
+            }
+            int toMove = index & 1;
+            // the side that just moved cannot have left its king in check
+            return !attacked(squares[kings[1 - toMove]], toMove, -1);
+        }
+
+        private int indexOf(int toMove) {
+            int index = 0;
+            for (int slot = 0; slot < n; slot++) {
+                index = (index << 6) | squares[slot];
+            }
+            return (index << 1) | toMove;
+        }
+
+        /**
+         * @param skip slot of a piece just captured, or -1
+         */
+        private boolean attacked(int square, int byColor, int skip) {
+            for (int slot = 0; slot < n; slot++) {
+                if (colors[slot] == byColor && slot != skip
+                        && (attacks(slot, squares[slot], occupied) & (1L << square)) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long attacks(int slot, int square, long occupied) {
+            return switch (type(pieces[slot])) {
+                case KING -> AttackTables.kingAttacks(square);
+                case QUEEN -> AttackTables.queenAttacks(square, occupied);
+                case BISHOP -> AttackTables.bishopAttacks(square, occupied);
+                case KNIGHT -> AttackTables.knightAttacks(square);
+                case ROOK -> AttackTables.rookAttacks(square, occupied);
+                case PAWN -> AttackTables.pawnAttacks(ChessGame.TeamColor.values()[colors[slot]], square);
+            };
+        }
+
+        private int slotAt(int square, int color) {
+            for (int slot = 0; slot < n; slot++) {
+                if (squares[slot] == square && colors[slot] == color) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private long occupancy(int color) {
+            long bits = 0;
+            for (int slot = 0; slot < n; slot++) {
+                if (colors[slot] == color) {
+                    bits |= 1L << squares[slot];
+                }
+            }
+            return bits;
+        }
+
+        /**
+         * First pass for one index: counts the moves that keep the material and settles
+         * the ones that do not
+         */
+        void count(int index, Solver solver) {
+            if (!load(index)) {
+                solver.counters[index] = NEVER_LOST;
+                return;
+            }
+            int us = index & 1;
+            int them = 1 - us;
+            long own = occupancy(us);
+            long theirs = occupancy(them);
+            int moves = 0;
+            int inTable = 0;
+            int fastestWin = 0;
+            int slowestLoss = 0;
+            boolean canDraw = false;
+
+            for (int slot = 0; slot < n; slot++) {
+                if (colors[slot] != us) {
+                    continue;
+                }
+                int from = squares[slot];
+                boolean pawn = type(pieces[slot]) == ChessPiece.PieceType.PAWN;
+                long quiet;
+                long captures;
+                if (pawn) {
+                    int step = us == 0 ? 8 : -8;
+                    quiet = 0;
+                    if ((occupied & (1L << (from + step))) == 0) {
+                        quiet = 1L << (from + step);
+                        int startRank = us == 0 ? 1 : 6;
+                        if (from >>> 3 == startRank && (occupied & (1L << (from + 2 * step))) == 0) {
+                            quiet |= 1L << (from + 2 * step);
+                        }
+                    }
+                    captures = attacks(slot, from, occupied) & theirs;
+                } else {
+                    long targets = attacks(slot, from, occupied) & ~own;
+                    quiet = targets & ~theirs;
+                    captures = targets & theirs;
+                }
+
+                for (long bits = quiet | captures; bits != 0; bits &= bits - 1) {
+                    int to = Long.numberOfTrailingZeros(bits);
+                    int captured = (captures & (1L << to)) != 0 ? slotAt(to, them) : -1;
+                    boolean promotes = pawn && (to < 8 || to >= 56);
+
+                    squares[slot] = to;
+                    long before = occupied;
+                    occupied = (occupied & ~(1L << from)) | (1L << to);
+                    boolean legal = !attacked(squares[kings[us]], them, captured);
+                    if (legal && captured < 0 && !promotes) {
+                        inTable++;
+                        moves++;
+                    } else if (legal) {
+                        int variants = promotes ? PROMOTIONS.length : 1;
+                        for (int v = 0; v < variants; v++) {
+                            int piece = promotes ? pieces[slot] - 5 + PROMOTIONS[v].ordinal() : pieces[slot];
+                            int reply = lookup(exitBoards(slot, piece, captured), them == 1);
+                            moves++;
+                            if (reply < 0) {
+                                fastestWin = fastestWin == 0 ? -reply : Math.min(fastestWin, -reply);
+                            } else if (reply > 0) {
+                                slowestLoss = Math.max(slowestLoss, reply + 1);
+                            } else {
+                                canDraw = true;
+                            }
+                        }
+                    }
+                    occupied = before;
+                    squares[slot] = from;
+                }
+            }
+
+            if (moves == 0 && !attacked(squares[kings[us]], them, -1)) {
+                // stalemate
+                solver.counters[index] = NEVER_LOST;
+                return;
+            }
+            solver.counters[index] = canDraw || fastestWin > 0 ? NEVER_LOST : (short) inTable;
+            solver.exitWins[index] = (byte) fastestWin;
+            solver.exitLosses[index] = (byte) slowestLoss;
+        }
+
+        /**
+         * @return bitboards of the current squares with a slot's piece replaced and a
+         * captured slot, if any, removed
+         */
+        private long[] exitBoards(int moved, int piece, int captured) {
+            Arrays.fill(bitboards, 0);
+            for (int slot = 0; slot < n; slot++) {
+                if (slot != captured) {
+                    bitboards[slot == moved ? piece : pieces[slot]] |= 1L << squares[slot];
+                }
+            }
+            // lookup may flip the boards, so it gets a copy
+            return bitboards.clone();
+        }
+
+        /**
+         * Plays the side that just moved backward: every legal position one quiet,
+         * non-promoting move earlier
+         *
+         * @return number of indexes written
+         */
+        int predecessors(int index, int[] out) {
+            load(index);
+            int toMove = index & 1;
+            int moved = 1 - toMove;
+            int count = 0;
+            for (int slot = 0; slot < n; slot++) {
+                if (colors[slot] != moved) {
+                    continue;
+                }
+                int square = squares[slot];
+                long sources;
+                if (type(pieces[slot]) == ChessPiece.PieceType.PAWN) {
+                    int step = moved == 0 ? -8 : 8;
+                    int one = square + step;
+                    sources = 0;
+                    if (one >= 8 && one < 56 && (occupied & (1L << one)) == 0) {
+                        sources = 1L << one;
+                        int doubleRank = moved == 0 ? 3 : 4;
+                        if (square >>> 3 == doubleRank && (occupied & (1L << (one + step))) == 0) {
+                            sources |= 1L << (one + step);
+                        }
+                    }
+                } else {
+                    sources = attacks(slot, square, occupied) & ~occupied;
+                }
+
+                for (long bits = sources; bits != 0; bits &= bits - 1) {
+                    int from = Long.numberOfTrailingZeros(bits);
+                    squares[slot] = from;
+                    long before = occupied;
+                    occupied = (occupied & ~(1L << square)) | (1L << from);
+                    // before the move it was the other side's king that must be out of check
+                    if (!attacked(squares[kings[toMove]], moved, -1)) {
+                        out[count++] = indexOf(moved);
+                    }
+                    occupied = before;
+                    squares[slot] = square;
+                }
+            }
+            return count;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java chess.tablebase.TablebaseGenerator <directory> <material>...");
+            return;
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]));
+        for (int i = 1; i < args.length; i++) {
+            long start = System.nanoTime();
+            Material material = generator.generate(args[i]);
+            System.out.printf("%s in %.1f s%n", material, (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
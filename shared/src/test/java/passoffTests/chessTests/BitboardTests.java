@@ -0,0 +1,78 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static passoffTests.TestFactory.*;
+
+public class BitboardTests {
+
+    @Test
+    @DisplayName("Reset Board Masks")
+    public void resetBoardMasks() {
+        var board = getNewBoard();
+        board.resetBoard();
+
+        Assertions.assertEquals(0x000000000000FFFFL, board.getOccupancy(ChessGame.TeamColor.WHITE),
+                "White occupancy should cover rows 1 and 2");
+        Assertions.assertEquals(0xFFFF000000000000L, board.getOccupancy(ChessGame.TeamColor.BLACK),
+                "Black occupancy should cover rows 7 and 8");
+        Assertions.assertEquals(0xFFFF00000000FFFFL, board.getOccupied(),
+                "Occupied mask should be the union of both colors");
+        Assertions.assertEquals(0x000000000000FF00L,
+                board.getBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        Assertions.assertEquals(1L << 60,
+                board.getBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+    }
+
+
+    @Test
+    @DisplayName("Replace and Remove Piece")
+    public void replaceAndRemove() {
+        var board = getNewBoard();
+        var position = getNewPosition(4, 4);
+        int square = ChessBoard.squareIndex(4, 4);
+
+        board.addPiece(position, getNewPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(position, getNewPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+
+        Assertions.assertEquals(0L, board.getBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                "Replaced piece was left behind in its mask");
+        Assertions.assertEquals(1L << square,
+                board.getBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(board.getPiece(position), board.getPiece(square));
+
+        board.addPiece(position, null);
+        Assertions.assertNull(board.getPiece(position));
+        Assertions.assertEquals(0L, board.getOccupied(), "Removed piece was left in the occupancy mask");
+        Assertions.assertEquals(getNewBoard(), board);
+    }
+
+
+    @Test
+    @DisplayName("Board Hash Follows Contents")
+    public void boardHash() {
+        var reset = getNewBoard();
+        reset.resetBoard();
+        var loaded = loadBoard("""
+                |r|n|b|q|k|b|n|r|
+                |p|p|p|p|p|p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |P|P|P|P|P|P|P|P|
+                |R|N|B|Q|K|B|N|R|
+                """);
+        Assertions.assertEquals(reset.hashCode(), loaded.hashCode(),
+                "Equal boards built in a different order must hash the same");
+
+        var empty = getNewBoard();
+        var position = getNewPosition(5, 5);
+        empty.addPiece(position, getNewPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        Assertions.assertNotEquals(getNewBoard().hashCode(), empty.hashCode());
+        empty.addPiece(position, null);
+        Assertions.assertEquals(getNewBoard().hashCode(), empty.hashCode());
+    }
+
+}
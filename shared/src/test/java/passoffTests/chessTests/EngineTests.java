@@ -0,0 +1,182 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import chess.engine.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static passoffTests.TestFactory.*;
+
+public class EngineTests {
+
+    @Test
+    @DisplayName("Finds Back Rank Mate")
+    public void mateInOne() {
+        var game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        var result = new Engine(1).search(game, Limits.depth(4));
+
+        Assertions.assertEquals(getNewMove(getNewPosition(1, 4), getNewPosition(8, 4), null), result.getBestMove());
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(1, result.getMateIn());
+    }
+
+
+    @Test
+    @DisplayName("Takes Hanging Queen")
+    public void hangingQueen() {
+        var game = ChessGame.fromFen("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1");
+        var result = new Engine(1).search(game, Limits.depth(3));
+
+        Assertions.assertEquals(getNewMove(getNewPosition(1, 4), getNewPosition(5, 4), null), result.getBestMove());
+        Assertions.assertTrue(result.getScore() > 300, "Winning a queen for nothing should score well");
+    }
+
+
+    @Test
+    @DisplayName("No Move When Mated")
+    public void alreadyMated() {
+        var game = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        var result = new Engine(1).search(game, Limits.depth(3));
+
+        Assertions.assertNull(result.getBestMove());
+        Assertions.assertTrue(result.isMate());
+    }
+
+
+    @Test
+    @DisplayName("Node Limit and Game Left Unchanged")
+    public void nodeLimit() {
+        var game = Perft.Position.KIWIPETE.newGame();
+        String fen = game.toFen();
+        long key = game.getZobristKey();
+
+        var result = new Engine(1).search(game, Limits.nodes(20_000));
+
+        Assertions.assertTrue(result.getNodes() <= 20_000, "Searched " + result.getNodes() + " nodes");
+        Assertions.assertNotNull(result.getBestMove(), "A move should be returned even when stopped early");
+        Assertions.assertTrue(result.getDepth() >= 1);
+        Assertions.assertEquals(fen, game.toFen());
+        Assertions.assertEquals(key, game.getZobristKey());
+        Assertions.assertEquals(0, game.getUndoDepth());
+    }
+
+
+    @Test
+    @DisplayName("Nodes Per Second Throttle")
+    public void throttle() {
+        var game = getNewGame();
+        var result = new Engine(1).search(game, Limits.nodes(20_000).withNodesPerSecond(100_000));
+
+        Assertions.assertTrue(result.getElapsedNanos() >= 150_000_000L,
+                "20,000 nodes at 100,000 nodes/s should take about 200 ms, took "
+                        + result.getElapsedNanos() / 1_000_000 + " ms");
+        Assertions.assertTrue(result.getNodesPerSecond() <= 110_000, "Ran at " + result.getNodesPerSecond());
+    }
+
+
+    @Test
+    @DisplayName("Principal Variation Is Legal")
+    public void principalVariation() throws InvalidMoveException {
+        var game = Perft.Position.MIDDLEGAME.newGame();
+        var result = new Engine(1).search(game, Limits.depth(4));
+
+        var line = result.getPrincipalVariation();
+        Assertions.assertFalse(line.isEmpty());
+        Assertions.assertEquals(result.getBestMove(), line.get(0));
+        for (ChessMove move : line) {
+            game.makeMove(move);
+        }
+    }
+
+
+    @Test
+    @DisplayName("Repetition Detection")
+    public void repetition() throws InvalidMoveException {
+        var game = getNewGame();
+        game.makeMove(getNewMove(getNewPosition(1, 7), getNewPosition(3, 6), null));
+        game.makeMove(getNewMove(getNewPosition(8, 7), getNewPosition(6, 6), null));
+        Assertions.assertFalse(game.isRepetition());
+        game.makeMove(getNewMove(getNewPosition(3, 6), getNewPosition(1, 7), null));
+        game.makeMove(getNewMove(getNewPosition(6, 6), getNewPosition(8, 7), null));
+        Assertions.assertTrue(game.isRepetition(), "Knights back home repeats the start position");
+    }
+
+
+    @Test
+    @DisplayName("Table Entry Packing")
+    public void tableEntry() {
+        var table = new TranspositionTable(1);
+        int move = PackedMove.of(12, 28, null, PackedMove.DOUBLE_PUSH);
+        table.store(42L, move, -1234, 9, TranspositionTable.UPPER);
+
+        long entry = table.probe(42L);
+        Assertions.assertEquals(move, TranspositionTable.move(entry));
+        Assertions.assertEquals(-1234, TranspositionTable.score(entry));
+        Assertions.assertEquals(9, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(43L));
+    }
+
+
+    @Test
+    @DisplayName("Parallel Search")
+    public void parallelSearch() {
+        var game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        String fen = game.toFen();
+
+        try (var engine = new Engine(4, 4)) {
+            var result = engine.search(game, Limits.depth(5));
+
+            Assertions.assertEquals(getNewMove(getNewPosition(1, 4), getNewPosition(8, 4), null), result.getBestMove());
+            Assertions.assertEquals(4, result.getThreadStats().size());
+            long threadNodes = 0;
+            for (ThreadStats stats : result.getThreadStats()) {
+                threadNodes += stats.getNodes();
+            }
+            Assertions.assertEquals(result.getNodes(), threadNodes, "Total should add up the threads");
+
+            // the engine can be reused, and helpers leave the caller's game alone
+            var second = engine.search(Perft.Position.KIWIPETE.newGame(), Limits.nodes(50_000));
+            Assertions.assertNotNull(second.getBestMove());
+        }
+        Assertions.assertEquals(fen, game.toFen());
+    }
+
+
+    @Test
+    @DisplayName("Concurrent Table Access Never Mixes Entries")
+    public void concurrentTable() throws InterruptedException {
+        var table = new TranspositionTable(1);
+        var mismatches = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t * 0x9E3779B97F4A7C15L;
+            threads.add(new Thread(() -> {
+                long key = seed;
+                for (int i = 0; i < 200_000; i++) {
+                    key = key * 6364136223846793005L + 1442695040888963407L;
+                    // every field is derived from the key, so a hit for the wrong key shows up
+                    table.store(key, (int) (key >>> 45) & 0x7FFF, (short) (key >>> 20), (int) (key >>> 56), 1);
+                    long probeKey = key ^ (i & 7);
+                    long entry = table.probe(probeKey);
+                    if (entry != TranspositionTable.MISS
+                            && (TranspositionTable.score(entry) != (short) (probeKey >>> 20)
+                            || TranspositionTable.depth(entry) != (int) (probeKey >>> 56))) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(0, mismatches.get());
+    }
+
+}
@@ -0,0 +1,77 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static passoffTests.TestFactory.*;
+
+public class EvaluationTests {
+
+    @Test
+    @DisplayName("Starting Position Is Balanced")
+    public void startingPosition() {
+        var game = getNewGame();
+        Assertions.assertEquals(0, game.evaluate());
+        Assertions.assertEquals(PieceSquareTables.MAX_PHASE, game.getBoard().getPhase());
+    }
+
+
+    @Test
+    @DisplayName("Incremental Scores Match a Rescan")
+    public void incrementalMatchesRescan() {
+        var random = new Random(240);
+        for (Perft.Position position : Perft.Position.values()) {
+            var game = position.newGame();
+            var moves = new MoveList();
+            int startScore = game.evaluate();
+
+            for (int ply = 0; ply < 60; ply++) {
+                moves.clear();
+                if (game.legalMoves(moves) == 0) {
+                    break;
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+
+                var rescanned = ChessGame.fromFen(game.toFen());
+                Assertions.assertEquals(rescanned.getBoard().getMidgameScore(), game.getBoard().getMidgameScore());
+                Assertions.assertEquals(rescanned.getBoard().getEndgameScore(), game.getBoard().getEndgameScore());
+                Assertions.assertEquals(rescanned.getBoard().getPhase(), game.getBoard().getPhase());
+                Assertions.assertEquals(rescanned.evaluate(), game.evaluate(), position + " after " + game.toFen());
+            }
+
+            while (game.getUndoDepth() > 0) {
+                game.unmakeMove();
+            }
+            Assertions.assertEquals(startScore, game.evaluate(), "Unmake did not restore the score");
+        }
+    }
+
+
+    @Test
+    @DisplayName("Side to Move Point of View")
+    public void sideToMove() {
+        var white = ChessGame.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 0 1");
+        var black = ChessGame.fromFen("4k3/8/8/8/8/8/8/3QK3 b - - 0 1");
+        Assertions.assertTrue(white.evaluate() > 800, "A queen up should be worth about a queen");
+        Assertions.assertEquals(-white.evaluate(), black.evaluate());
+    }
+
+
+    @Test
+    @DisplayName("Endgame King Wants the Centre")
+    public void taperedKing() {
+        // bare kings: phase 0, so only the endgame table counts
+        var central = ChessGame.fromFen("7k/8/8/8/4K3/8/8/8 w - - 0 1");
+        var corner = ChessGame.fromFen("7k/8/8/8/8/8/8/K7 w - - 0 1");
+        Assertions.assertEquals(0, central.getBoard().getPhase());
+        Assertions.assertTrue(central.evaluate() > corner.evaluate());
+
+        // with all the pieces on, the castled corner is the safer place
+        var castled = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1RK1 w kq - 0 1");
+        var wandering = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/4K3/8/PPPPPPPP/RNBQ1R2 w kq - 0 1");
+        Assertions.assertTrue(castled.evaluate() > wandering.evaluate());
+    }
+
+}
@@ -0,0 +1,122 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static passoffTests.TestFactory.*;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        var game = ChessGame.fromFen(Fen.START);
+        var expected = getNewGame();
+
+        Assertions.assertEquals(expected.getBoard(), game.getBoard());
+        Assertions.assertEquals(expected.getZobristKey(), game.getZobristKey());
+        Assertions.assertEquals(Fen.START, expected.toFen());
+    }
+
+
+    @Test
+    @DisplayName("Round Trip Reference Positions")
+    public void roundTrip() {
+        for (Perft.Position position : Perft.Position.values()) {
+            Assertions.assertEquals(position.fen(), ChessGame.fromFen(position.fen()).toFen());
+        }
+    }
+
+
+    @Test
+    @DisplayName("Fields After Moves")
+    public void fieldsAfterMoves() throws InvalidMoveException {
+        var game = getNewGame();
+        game.makeMove(getNewMove(getNewPosition(2, 5), getNewPosition(4, 5), null));
+        game.makeMove(getNewMove(getNewPosition(8, 7), getNewPosition(6, 6), null));
+        game.makeMove(getNewMove(getNewPosition(4, 5), getNewPosition(5, 5), null));
+        game.makeMove(getNewMove(getNewPosition(7, 4), getNewPosition(5, 4), null));
+
+        String fen = "rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3";
+        Assertions.assertEquals(fen, game.toFen());
+
+        var loaded = ChessGame.fromFen(fen);
+        Assertions.assertEquals(game.getZobristKey(), loaded.getZobristKey());
+        Assertions.assertEquals(ChessBoard.squareIndex(6, 4), loaded.getEnPassantSquare());
+        Assertions.assertEquals(3, loaded.getFullmoveNumber());
+    }
+
+
+    @Test
+    @DisplayName("State the Board Cannot Back Up Is Dropped")
+    public void unbackedState() {
+        // no white pawn next to d5, and no rook on h1
+        var game = ChessGame.fromFen("4k3/8/8/3p4/8/8/8/R3K3 w KQ d6 0 1");
+        Assertions.assertEquals(-1, game.getEnPassantSquare());
+        Assertions.assertEquals(ChessGame.WHITE_QUEENSIDE, game.getCastlingRights());
+    }
+
+
+    @Test
+    @DisplayName("Missing Clocks and Extra Spaces")
+    public void lenientFields() {
+        var game = ChessGame.fromFen("  8/8/8/8/8/8/8/K6k  b  -  - ");
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        Assertions.assertEquals(1, game.getFullmoveNumber());
+        Assertions.assertEquals("8/8/8/8/8/8/8/K6k b - - 0 1", game.toFen());
+    }
+
+
+    @Test
+    @DisplayName("Lines From a Byte Buffer")
+    public void byteBuffer() {
+        String text = Perft.Position.KIWIPETE.fen() + "\r\n" + Perft.Position.ENDGAME.fen() + "\n";
+        var buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        var game = getNewGame();
+
+        Fen.parse(buffer, game);
+        Assertions.assertEquals(Perft.Position.KIWIPETE.fen(), game.toFen());
+        Fen.parse(buffer, game);
+        Assertions.assertEquals(Perft.Position.ENDGAME.fen(), game.toFen());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+
+    @Test
+    @DisplayName("Invalid FEN")
+    public void invalid() {
+        String[] invalid = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e5 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - zero 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+        };
+        for (String fen : invalid) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+
+
+    @Test
+    @DisplayName("En Passant Square On Wrong Rank")
+    public void enPassantWrongRank() {
+        // a rank 3 target with white to move would let d2 take its own e2 pawn "en passant"
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ChessGame.fromFen("4k3/8/8/8/8/8/3PP3/4K3 w - e3 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ChessGame.fromFen("4k3/3pp3/8/8/8/8/8/4K3 b - e6 0 1"));
+
+        var game = ChessGame.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1");
+        Assertions.assertEquals("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1", game.toFen());
+    }
+
+}
@@ -0,0 +1,44 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static passoffTests.TestFactory.*;
+
+public class FlyweightTests {
+
+    @Test
+    @DisplayName("Shared Positions")
+    public void sharedPositions() {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                var position = ChessPosition.of(row, col);
+                Assertions.assertSame(position, ChessPosition.of(row, col));
+                Assertions.assertSame(position, ChessPosition.of(ChessBoard.squareIndex(row, col)));
+                Assertions.assertEquals(getNewPosition(row, col), position);
+            }
+        }
+
+        Assertions.assertEquals(getNewPosition(0, 9), ChessPosition.of(0, 9),
+                "Off-board positions should still behave like the constructor");
+    }
+
+
+    @Test
+    @DisplayName("Shared Pieces")
+    public void sharedPieces() {
+        for (var color : ChessGame.TeamColor.values()) {
+            for (var type : ChessPiece.PieceType.values()) {
+                var piece = ChessPiece.of(color, type);
+                Assertions.assertSame(piece, ChessPiece.of(color, type));
+                Assertions.assertEquals(getNewPiece(color, type), piece);
+            }
+        }
+
+        var board = getNewBoard();
+        board.resetBoard();
+        Assertions.assertSame(board.getPiece(getNewPosition(2, 1)), board.getPiece(getNewPosition(2, 8)),
+                "resetBoard should place shared piece instances");
+    }
+
+}
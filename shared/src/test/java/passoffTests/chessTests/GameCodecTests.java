@@ -0,0 +1,154 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static passoffTests.TestFactory.*;
+
+public class GameCodecTests {
+
+    @Test
+    @DisplayName("Starting Game Round Trip")
+    public void startingGame() {
+        var game = getNewGame();
+        byte[] bytes = GameCodec.toBytes(game);
+        Assertions.assertEquals(GameCodec.MAX_GAME_BYTES, bytes.length,
+                "32 pieces should take the full 30 bytes");
+
+        var decoded = GameCodec.fromBytes(bytes);
+        Assertions.assertEquals(game.getBoard(), decoded.getBoard());
+        Assertions.assertEquals(game.getTeamTurn(), decoded.getTeamTurn());
+        Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey());
+    }
+
+
+    @Test
+    @DisplayName("Round Trip Keeps Position State")
+    public void positionState() throws InvalidMoveException {
+        var game = getNewGame();
+        game.makeMove(getNewMove(getNewPosition(2, 5), getNewPosition(4, 5), null));
+        game.makeMove(getNewMove(getNewPosition(7, 1), getNewPosition(6, 1), null));
+        game.makeMove(getNewMove(getNewPosition(4, 5), getNewPosition(5, 5), null));
+        game.makeMove(getNewMove(getNewPosition(8, 1), getNewPosition(7, 1), null));
+        game.makeMove(getNewMove(getNewPosition(1, 7), getNewPosition(3, 6), null));
+        game.makeMove(getNewMove(getNewPosition(7, 4), getNewPosition(5, 4), null));
+
+        var decoded = GameCodec.fromBytes(GameCodec.toBytes(game));
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, decoded.getTeamTurn());
+        Assertions.assertEquals(game.getCastlingRights(), decoded.getCastlingRights(),
+                "Black's lost queenside right must not be re-inferred");
+        Assertions.assertEquals(ChessBoard.squareIndex(6, 4), decoded.getEnPassantSquare());
+        Assertions.assertEquals(0, decoded.getHalfmoveClock());
+        Assertions.assertEquals(4, decoded.getFullmoveNumber());
+        Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey());
+
+        // the en passant capture is still on offer after decoding
+        Assertions.assertTrue(decoded.validMoves(getNewPosition(5, 5))
+                .contains(getNewMove(getNewPosition(5, 5), getNewPosition(6, 4), null)));
+    }
+
+
+    @Test
+    @DisplayName("Decode Into Existing Game")
+    public void decodeInto() {
+        var target = getNewGame();
+        var buffer = ByteBuffer.allocate(GameCodec.MAX_GAME_BYTES * Perft.Position.values().length);
+        for (Perft.Position position : Perft.Position.values()) {
+            GameCodec.encode(position.newGame(), buffer);
+        }
+        buffer.flip();
+
+        for (Perft.Position position : Perft.Position.values()) {
+            var original = position.newGame();
+            GameCodec.decode(buffer, target);
+            Assertions.assertEquals(original.getBoard(), target.getBoard(), position.name());
+            Assertions.assertEquals(original.getZobristKey(), target.getZobristKey(), position.name());
+            Assertions.assertEquals(original.getCastlingRights(), target.getCastlingRights(), position.name());
+            Assertions.assertEquals(position.expectedNodes(2), Perft.perft(target, 2), position.name());
+        }
+        Assertions.assertFalse(buffer.hasRemaining(), "Decoding should consume exactly what was encoded");
+    }
+
+
+    @Test
+    @DisplayName("Odd Piece Count and Empty Board")
+    public void sizes() {
+        var board = loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| |N| |
+                """);
+        Assertions.assertEquals(10, GameCodec.boardSize(board));
+        var buffer = ByteBuffer.allocate(GameCodec.MAX_BOARD_BYTES);
+        GameCodec.encodeBoard(board, buffer);
+        Assertions.assertEquals(10, buffer.position());
+
+        var decoded = getNewBoard();
+        decoded.resetBoard();
+        GameCodec.decodeBoard(buffer.flip(), decoded);
+        Assertions.assertEquals(board, decoded);
+
+        Assertions.assertEquals(8, GameCodec.boardSize(getNewBoard()));
+    }
+
+
+    @Test
+    @DisplayName("Corrupt Piece Nibble")
+    public void corruptNibble() {
+        var buffer = ByteBuffer.allocate(9);
+        buffer.putLong(1L).put((byte) 0xF0).flip();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decodeBoard(buffer, getNewBoard()));
+    }
+
+
+    @Test
+    @DisplayName("Corrupt Input Leaves Target Untouched")
+    public void corruptLeavesTarget() throws InvalidMoveException {
+        var target = getNewGame();
+        target.makeMove(getNewMove(getNewPosition(2, 5), getNewPosition(4, 5), null));
+        String before = target.toFen();
+
+        byte[] valid = GameCodec.toBytes(ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 b Q - 3 20"));
+
+        // the last piece's nibble is bad, after the others would already have been placed
+        byte[] badNibble = valid.clone();
+        badNibble[9] = (byte) (badNibble[9] | 0xF0);
+        // castling rights out of range
+        byte[] badState = valid.clone();
+        badState[valid.length - 6] = (byte) 0xFF;
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 1);
+        // an en passant square on e6 cannot follow a white double push with black to move
+        byte[] badEnPassant = valid.clone();
+        badEnPassant[valid.length - 5] = (byte) (ChessBoard.squareIndex(6, 5) + 1);
+
+        for (byte[] corrupt : new byte[][]{badNibble, badState, truncated, badEnPassant}) {
+            var buffer = ByteBuffer.wrap(corrupt);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(buffer, target));
+            Assertions.assertEquals(before, target.toFen(), "A failed decode should leave the game alone");
+            Assertions.assertEquals(0, buffer.position(), "A failed decode should not consume input");
+        }
+
+        // e3 is on the right rank, but no black pawn can take there, so it is dropped as Fen drops it
+        byte[] uncapturable = valid.clone();
+        uncapturable[valid.length - 5] = (byte) (ChessBoard.squareIndex(3, 5) + 1);
+        GameCodec.decode(ByteBuffer.wrap(uncapturable), target);
+        Assertions.assertEquals(-1, target.getEnPassantSquare());
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K3 b Q - 3 20", target.toFen());
+
+        var board = getNewBoard();
+        board.resetBoard();
+        var copy = new ChessBoard(board);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decodeBoard(ByteBuffer.wrap(badNibble), board));
+        Assertions.assertEquals(copy, board);
+    }
+
+}
@@ -0,0 +1,139 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import chess.book.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class OpeningBookTests {
+
+    private static final String GAMES = """
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 Nc6 1-0
+
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bb5 1-0
+
+            [Result "0-1"]
+
+            1. e4 e5 2. Nf3 Nc6 0-1
+
+            [Result "0-1"]
+
+            1. d4 d5 0-1
+
+            [Result "1/2-1/2"]
+
+            1. e4 c5 1/2-1/2
+            """;
+
+    @Test
+    @DisplayName("Book Built From PGN")
+    public void bookFromPgn(@TempDir Path directory) throws IOException, InvalidMoveException {
+        Path pgn = directory.resolve("games.pgn");
+        Files.writeString(pgn, GAMES);
+        Path file = directory.resolve("book.bin");
+
+        var builder = new OpeningBookBuilder();
+        Assertions.assertEquals(5, builder.addFile(pgn).getGames());
+        builder.write(file);
+
+        try (var book = OpeningBook.open(file)) {
+            var game = new ChessGame();
+            // 1. d4 only ever lost, so it is left out
+            Assertions.assertEquals(1, book.count(game.getZobristKey()));
+            Assertions.assertEquals(move("e2e4"), PackedMove.withoutFlags(book.bestMove(game)));
+
+            game.makeMove(PackedMove.toChessMove(move("e2e4")));
+            var moves = new MoveList();
+            Assertions.assertEquals(2, book.moves(game.getZobristKey(), moves));
+            Assertions.assertEquals(move("e7e5"), PackedMove.withoutFlags(moves.get(0)),
+                    "Most successful reply should come first");
+            Assertions.assertEquals(move("c7c5"), PackedMove.withoutFlags(moves.get(1)));
+
+            // e5 has weight 2 and c5 weight 1
+            Assertions.assertEquals(move("e7e5"), PackedMove.withoutFlags(book.pickMove(game, 0)));
+            Assertions.assertEquals(move("e7e5"), PackedMove.withoutFlags(book.pickMove(game, 1)));
+            Assertions.assertEquals(move("c7c5"), PackedMove.withoutFlags(book.pickMove(game, 2)));
+            Assertions.assertEquals(move("e7e5"), PackedMove.withoutFlags(book.pickMove(game, 3)));
+
+            game.makeMove(PackedMove.toChessMove(move("a7a6")));
+            Assertions.assertEquals(PackedMove.NONE, book.bestMove(game), "Position should be out of book");
+            Assertions.assertEquals(OpeningBook.NOT_FOUND, book.find(game.getZobristKey()));
+        }
+    }
+
+
+    @Test
+    @DisplayName("Records Sorted")
+    public void recordsSorted(@TempDir Path directory) throws IOException {
+        var builder = new OpeningBookBuilder(12);
+        var random = new Random(240);
+        var moves = new MoveList();
+        for (int i = 0; i < 500; i++) {
+            var game = new ChessGame();
+            int[] line = new int[12];
+            int plies = 0;
+            for (int ply = 0; ply < line.length; ply++, plies++) {
+                moves.clear();
+                if (game.legalMoves(moves) == 0) {
+                    break;
+                }
+                line[ply] = moves.get(random.nextInt(moves.size()));
+                game.makeMove(line[ply]);
+            }
+            builder.addGame(new ChessGame(), Arrays.copyOf(line, plies), i % 3 == 0 ? "1-0" : "1/2-1/2");
+        }
+        Path file = directory.resolve("book.bin");
+        long records = builder.write(file);
+        Assertions.assertTrue(records > 3000, "Random games should reach thousands of positions");
+
+        try (var book = OpeningBook.open(file)) {
+            Assertions.assertEquals(records, book.size());
+            for (long i = 1; i < book.size(); i++) {
+                Assertions.assertTrue(book.key(i - 1) <= book.key(i), "Keys out of order at " + i);
+                if (book.key(i - 1) == book.key(i)) {
+                    Assertions.assertTrue(book.weight(i - 1) >= book.weight(i), "Weights out of order at " + i);
+                }
+            }
+            for (long i = 0; i < book.size(); i += 17) {
+                long first = book.find(book.key(i));
+                Assertions.assertTrue(first >= 0 && first <= i && book.key(first) == book.key(i));
+            }
+        }
+    }
+
+
+    @Test
+    @DisplayName("Empty and Invalid Books")
+    public void emptyAndInvalid(@TempDir Path directory) throws IOException {
+        Path empty = directory.resolve("empty.bin");
+        new OpeningBookBuilder().write(empty);
+        try (var book = OpeningBook.open(empty)) {
+            Assertions.assertEquals(0, book.size());
+            Assertions.assertEquals(PackedMove.NONE, book.bestMove(new ChessGame()));
+        }
+
+        Path junk = directory.resolve("junk.bin");
+        Files.writeString(junk, "this is not an opening book");
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(junk));
+    }
+
+
+    /**
+     * @return the move without flags, as {@link PackedMove#withoutFlags(int)} leaves a book move
+     */
+    private static int move(String uci) {
+        int from = (uci.charAt(1) - '1') * 8 + (uci.charAt(0) - 'a');
+        int to = (uci.charAt(3) - '1') * 8 + (uci.charAt(2) - 'a');
+        return PackedMove.of(from, to);
+    }
+}
@@ -0,0 +1,82 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+
+import static passoffTests.TestFactory.*;
+
+public class PackedMoveTests {
+
+    @Test
+    @DisplayName("Pack and Unpack Move")
+    public void roundTrip() {
+        var move = getNewMove(getNewPosition(7, 3), getNewPosition(8, 4), ChessPiece.PieceType.KNIGHT);
+        int packed = PackedMove.fromChessMove(move);
+
+        Assertions.assertEquals(ChessBoard.squareIndex(7, 3), PackedMove.from(packed));
+        Assertions.assertEquals(ChessBoard.squareIndex(8, 4), PackedMove.to(packed));
+        Assertions.assertEquals(ChessPiece.PieceType.KNIGHT, PackedMove.promotion(packed));
+        Assertions.assertEquals(move, PackedMove.toChessMove(packed | PackedMove.CAPTURE),
+                "Flags should not change which move is described");
+    }
+
+
+    @Test
+    @DisplayName("Buffer Holds Expected Moves")
+    public void bufferHoldsExpectedMoves() {
+        var board = loadBoard("""
+                | | | | | | | | |
+                | | |P| | | | | |
+                | | | | |n| | | |
+                | | | |Q| | |p| |
+                | | | | | | | | |
+                | |b| | | |N| | |
+                | | | | |P| | | |
+                |R| | | |K| | | |
+                """);
+
+        // knight: every jump but the one onto its own king, taking the pawn on g5
+        assertBufferMoves(board, 3, 6, new int[][]{{1, 7}, {2, 4}, {2, 8}, {4, 4}, {4, 8}, {5, 5}, {5, 7}});
+        // bishop: stops at the edges and on the queen it takes
+        assertBufferMoves(board, 3, 2, new int[][]{{4, 1}, {2, 1}, {4, 3}, {5, 4}, {2, 3}, {1, 4}});
+        // knight: takes the pawn on c7 but not its own pawn on g5
+        assertBufferMoves(board, 6, 5, new int[][]{{7, 3}, {5, 3}, {8, 4}, {8, 6}, {7, 7}, {4, 4}, {4, 6}});
+        // rook: up the open file, along the rank until its king
+        assertBufferMoves(board, 1, 1, new int[][]{{2, 1}, {3, 1}, {4, 1}, {5, 1}, {6, 1}, {7, 1}, {8, 1},
+                {1, 2}, {1, 3}, {1, 4}});
+        // king: boxed in by its own pawn
+        assertBufferMoves(board, 1, 5, new int[][]{{1, 4}, {1, 6}, {2, 4}, {2, 6}});
+        // pawn: a single and a double push from its starting rank
+        assertBufferMoves(board, 2, 5, new int[][]{{3, 5}, {4, 5}});
+
+        // pawn: four promotions on c8
+        var moves = new MoveList();
+        int count = board.getPiece(getNewPosition(7, 3)).pieceMoves(board, ChessBoard.squareIndex(7, 3), moves);
+        var promotions = new HashSet<ChessMove>();
+        for (var type : new ChessPiece.PieceType[]{ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT}) {
+            promotions.add(getNewMove(getNewPosition(7, 3), getNewPosition(8, 3), type));
+        }
+        Assertions.assertEquals(4, count);
+        Assertions.assertEquals(promotions, unpack(moves, count));
+    }
+
+
+    private static void assertBufferMoves(ChessBoard board, int row, int col, int[][] endPositions) {
+        var moves = new MoveList();
+        int count = board.getPiece(getNewPosition(row, col)).pieceMoves(board, ChessBoard.squareIndex(row, col), moves);
+        Assertions.assertEquals(count, moves.size());
+        Assertions.assertEquals(loadMoves(getNewPosition(row, col), endPositions), unpack(moves, count),
+                "Wrong packed moves from " + row + "," + col);
+    }
+
+    private static HashSet<ChessMove> unpack(MoveList moves, int count) {
+        var unpacked = new HashSet<ChessMove>();
+        for (int i = 0; i < count; i++) {
+            unpacked.add(PackedMove.toChessMove(moves.get(i)));
+        }
+        return unpacked;
+    }
+}
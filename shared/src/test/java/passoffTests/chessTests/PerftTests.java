@@ -0,0 +1,46 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class PerftTests {
+
+    // deepest depth per position that stays well under a second
+    private static int testDepth(Perft.Position position) {
+        int depth = 1;
+        while (depth < position.maxDepth() && position.expectedNodes(depth + 1) <= 200_000) {
+            depth++;
+        }
+        return depth;
+    }
+
+
+    @ParameterizedTest
+    @EnumSource(Perft.Position.class)
+    @DisplayName("Reference Node Counts")
+    public void referenceCounts(Perft.Position position) {
+        var game = position.newGame();
+        long key = game.getZobristKey();
+
+        for (int depth = 1; depth <= testDepth(position); depth++) {
+            Assertions.assertEquals(position.expectedNodes(depth), Perft.perft(game, depth),
+                    position + " perft(" + depth + ") is wrong");
+        }
+        Assertions.assertEquals(key, game.getZobristKey(), "perft did not leave the game as it found it");
+    }
+
+
+    @Test
+    @DisplayName("Divide Adds Up")
+    public void divideAddsUp() {
+        var game = Perft.Position.KIWIPETE.newGame();
+        var counts = Perft.divide(game, 2);
+
+        Assertions.assertEquals(48, counts.size(), "Wrong number of root moves");
+        Assertions.assertEquals(Perft.Position.KIWIPETE.expectedNodes(2),
+                counts.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+}
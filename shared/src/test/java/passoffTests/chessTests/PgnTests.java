@@ -0,0 +1,144 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import chess.pgn.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static passoffTests.TestFactory.*;
+
+public class PgnTests {
+
+    private static final String SCHOLARS_MATE = """
+            [Event "Casual"]
+            [White "Alice"]
+            [Black "Bob \\"The Blunderer\\""]
+            [Result "1-0"]
+
+            1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6?? 4. Qxf7# 1-0
+            """;
+
+    private static final String ANNOTATED = """
+            [Event "Annotated"]
+            [Result "1/2-1/2"]
+
+            1.e4 {king's pawn} c5 $1 2. Nf3 (2. c3 d5 (2... Nf6) 3. exd5) 2... d6
+            ; a line comment
+            3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 6. Be2 e5 7. Nb3 Be7 8. O-O O-O 1/2-1/2
+            """;
+
+    private static final String SPECIAL_MOVES = """
+            [Event "Special"]
+            [SetUp "1"]
+            [FEN "4k3/1P6/8/3pP3/8/8/8/R3K3 w Q d6 0 1"]
+
+            1. exd6 e.p. Kd7 2. b8=N+ Kxd6 3. O-O-O+ *
+            """;
+
+    private static final String ILLEGAL = """
+            [Event "Broken"]
+
+            1. e4 e5 2. Ke3 *
+            """;
+
+    @Test
+    @DisplayName("Tags, Moves and Result")
+    public void scholarsMate() throws PgnFormatException {
+        var game = parseOne(SCHOLARS_MATE);
+
+        Assertions.assertEquals("Bob \"The Blunderer\"", game.getTag("Black"));
+        Assertions.assertEquals("1-0", game.getResult());
+        Assertions.assertEquals(7, game.getMoveCount());
+        Assertions.assertEquals(getNewMove(getNewPosition(5, 8), getNewPosition(7, 6), null), game.getMoves().get(6));
+        Assertions.assertTrue(game.getGame().isInCheckmate(ChessGame.TeamColor.BLACK));
+    }
+
+
+    @Test
+    @DisplayName("Comments, Variations and NAGs Are Skipped")
+    public void annotated() throws PgnFormatException {
+        var game = parseOne(ANNOTATED);
+
+        Assertions.assertEquals(16, game.getMoveCount(), "Only main line moves should be played");
+        Assertions.assertEquals("1/2-1/2", game.getResult());
+        Assertions.assertEquals(0, game.getGame().getCastlingRights());
+    }
+
+
+    @Test
+    @DisplayName("En Passant, Promotion and Castling From a FEN Tag")
+    public void specialMoves() throws PgnFormatException {
+        var game = parseOne(SPECIAL_MOVES).getGame();
+
+        var board = game.getBoard();
+        Assertions.assertEquals(getNewPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                board.getPiece(getNewPosition(8, 2)));
+        Assertions.assertEquals(getNewPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                board.getPiece(getNewPosition(1, 3)));
+        Assertions.assertEquals(getNewPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                board.getPiece(getNewPosition(1, 4)));
+        Assertions.assertTrue(game.isInCheck(ChessGame.TeamColor.BLACK));
+    }
+
+
+    @Test
+    @DisplayName("Malformed Record Is Reported and Skipped")
+    public void malformed() {
+        String pgn = SCHOLARS_MATE + "\n" + ILLEGAL + "\n" + ANNOTATED;
+        List<PgnGame> games = new ArrayList<>();
+        var report = PgnImporter.importBuffer(ByteBuffer.wrap(pgn.getBytes(StandardCharsets.UTF_8)), games::add);
+
+        Assertions.assertEquals(2, report.getGames());
+        Assertions.assertEquals(1, report.getErrors().size());
+        long expectedOffset = pgn.indexOf("Ke3");
+        Assertions.assertEquals(expectedOffset, report.getErrors().get(0).getOffset(),
+                "Error should point at the illegal move");
+        Assertions.assertEquals("Annotated", games.get(1).getTag("Event"));
+    }
+
+
+    @Test
+    @DisplayName("Parallel File Import")
+    public void fileImport(@TempDir Path directory) throws IOException {
+        StringBuilder pgn = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            pgn.append(i % 10 == 7 ? ILLEGAL : i % 2 == 0 ? SCHOLARS_MATE : ANNOTATED).append('\n');
+        }
+        Path file = directory.resolve("games.pgn");
+        Files.writeString(file, pgn);
+
+        List<PgnGame> games = Collections.synchronizedList(new ArrayList<>());
+        // a tiny chunk size forces the file to be split into many pieces
+        var report = PgnImporter.importFile(file, games::add, new ForkJoinPool(4), 512);
+
+        Assertions.assertEquals(45, report.getGames());
+        Assertions.assertEquals(45, games.size());
+        Assertions.assertEquals(5, report.getErrors().size());
+        Assertions.assertEquals(Files.size(file), report.getBytes());
+
+        games.sort(Comparator.comparingLong(PgnGame::getOffset));
+        Assertions.assertEquals(0, games.get(0).getOffset());
+        Assertions.assertEquals(7, games.get(0).getMoveCount());
+    }
+
+
+    private static PgnGame parseOne(String pgn) throws PgnFormatException {
+        var parser = new PgnParser(ByteBuffer.wrap(pgn.getBytes(StandardCharsets.UTF_8)), 0);
+        var game = parser.next();
+        Assertions.assertNotNull(game);
+        Assertions.assertNull(parser.next(), "Expected a single game");
+        return game;
+    }
+
+}
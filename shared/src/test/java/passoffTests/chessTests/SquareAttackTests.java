@@ -0,0 +1,67 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static passoffTests.TestFactory.*;
+
+public class SquareAttackTests {
+
+    @Test
+    @DisplayName("Attacks From Every Piece Type")
+    public void attacksByType() {
+        var game = getNewGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | | | |N| | |
+                | | | | | | | | |
+                | |B| | | |P| |R|
+                | | | | |K| | | |
+                """));
+
+        // pawns attack diagonally forward only
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(3, 5), ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isSquareAttacked(getNewPosition(3, 6), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(4, 4), ChessGame.TeamColor.BLACK));
+        Assertions.assertFalse(game.isSquareAttacked(getNewPosition(6, 4), ChessGame.TeamColor.BLACK));
+
+        // knight, king
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(6, 7), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(7, 4), ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(1, 6), ChessGame.TeamColor.WHITE));
+
+        // sliders stop at the first blocker, which they still attack
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(6, 6), ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isSquareAttacked(getNewPosition(6, 2), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(8, 8), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.isSquareAttacked(getNewPosition(2, 6), ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isSquareAttacked(getNewPosition(2, 1), ChessGame.TeamColor.WHITE));
+    }
+
+
+    @Test
+    @DisplayName("Check Through Discovered Ray")
+    public void discoveredCheck() throws InvalidMoveException {
+        var game = getNewGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |N| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |R| |K| |
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        Assertions.assertFalse(game.isInCheck(ChessGame.TeamColor.BLACK));
+
+        game.makeMove(getNewMove(getNewPosition(4, 5), getNewPosition(6, 6), null));
+        Assertions.assertTrue(game.isInCheck(ChessGame.TeamColor.BLACK));
+        Assertions.assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+    }
+
+}
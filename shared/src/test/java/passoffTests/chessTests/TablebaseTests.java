@@ -0,0 +1,208 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import chess.engine.*;
+import chess.tablebase.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        // KPK promotes into KQK and KRK, so all three are built
+        var generator = new TablebaseGenerator(directory, new ForkJoinPool(4));
+        Assertions.assertEquals("KPK", generator.generate("KKP").toString(), "Tables are named white-strong");
+        tablebase = Tablebase.open(directory);
+        Assertions.assertEquals(3, tablebase.size());
+    }
+
+    @AfterAll
+    public static void close() throws IOException {
+        tablebase.close();
+    }
+
+
+    @Test
+    @DisplayName("Longest Mates")
+    public void longestMates() throws IOException {
+        // the longest forced mates are known: 10 moves with a queen, 16 with a rook
+        Assertions.assertEquals(19, longestWin("KQK"));
+        Assertions.assertEquals(31, longestWin("KRK"));
+    }
+
+
+    @Test
+    @DisplayName("Pawns On Both Sides Refused")
+    public void opposingPawnsRefused() {
+        // a double push could allow en passant, which the table index cannot record
+        Assertions.assertTrue(Material.parse("KPKP").hasOpposingPawns());
+        Assertions.assertFalse(Material.parse("KPK").hasOpposingPawns());
+        var generator = new TablebaseGenerator(directory);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> generator.generate("KPKP"));
+        Assertions.assertFalse(tablebase.covers(Material.parse("KPKP")));
+    }
+
+
+    @Test
+    @DisplayName("Known Positions")
+    public void knownPositions() {
+        var mateInOne = ChessGame.fromFen("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+        Assertions.assertEquals(1, tablebase.probe(mateInOne));
+
+        var mated = ChessGame.fromFen("k6Q/8/1K6/8/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(mated.isInCheckmate(ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(Tablebase.isLoss(tablebase.probe(mated)));
+        Assertions.assertEquals(0, Tablebase.pliesToMate(tablebase.probe(mated)));
+
+        var stalemate = ChessGame.fromFen("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(stalemate.isInStalemate(ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(Tablebase.isDraw(tablebase.probe(stalemate)));
+
+        // king on the sixth in front of its pawn wins whoever moves
+        Assertions.assertTrue(Tablebase.isWin(tablebase.probe(ChessGame.fromFen("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"))));
+        Assertions.assertTrue(Tablebase.isLoss(tablebase.probe(ChessGame.fromFen("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"))));
+        // a rook pawn with the defending king in the corner cannot be won
+        Assertions.assertTrue(Tablebase.isDraw(tablebase.probe(ChessGame.fromFen("k7/8/8/8/P7/8/8/4K3 w - - 0 1"))));
+
+        // the same position with colors reversed reads from the same table
+        Assertions.assertEquals(1, tablebase.probe(ChessGame.fromFen("6q1/8/8/8/8/1k6/8/K7 b - - 0 1")));
+        Assertions.assertEquals(Tablebase.NOT_FOUND, tablebase.probe(new ChessGame()));
+    }
+
+
+    @Test
+    @DisplayName("Agrees With Game Rules")
+    public void agreesWithGame() throws InvalidMoveException {
+        var random = new Random(240);
+        for (String signature : new String[]{"KQK", "KRK", "KPK", "KKR"}) {
+            var material = Material.parse(signature);
+            int checked = 0;
+            while (checked < 500) {
+                var game = randomGame(material, random);
+                int value = game == null ? Tablebase.NOT_FOUND : tablebase.probe(game);
+                if (value == Tablebase.NOT_FOUND) {
+                    continue;
+                }
+                checked++;
+                var turn = game.getTeamTurn();
+                Assertions.assertEquals(game.isInCheckmate(turn),
+                        Tablebase.isLoss(value) && Tablebase.pliesToMate(value) == 0, game.toFen());
+                if (game.isInStalemate(turn)) {
+                    Assertions.assertTrue(Tablebase.isDraw(value), game.toFen());
+                }
+
+                // a win needs a reply one ply closer to mate; a loss allows nothing better
+                int best = Integer.MIN_VALUE;
+                var moves = new MoveList();
+                game.legalMoves(moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    game.makeMove(moves.get(i));
+                    int reply = tablebase.probe(game);
+                    game.unmakeMove();
+                    if (reply != Tablebase.NOT_FOUND) {
+                        best = Math.max(best, -Tablebase.toScore(reply));
+                    }
+                }
+                if (!moves.isEmpty() && best != Integer.MIN_VALUE) {
+                    Assertions.assertEquals(Tablebase.toScore(value), adjust(best), game.toFen());
+                }
+            }
+        }
+    }
+
+
+    @Test
+    @DisplayName("Best Moves Reach Mate")
+    public void bestMovesMate() {
+        var game = ChessGame.fromFen("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        // castling rights are inferred from the rook, so clear them through FEN
+        Assertions.assertEquals(Tablebase.NOT_FOUND, tablebase.probe(ChessGame.fromFen("8/8/8/3k4/8/8/8/R3K3 w Q - 0 1")));
+        int value = tablebase.probe(game);
+        Assertions.assertTrue(Tablebase.isWin(value));
+
+        for (int ply = 0; ply < Tablebase.pliesToMate(value); ply++) {
+            int move = tablebase.bestMove(game);
+            Assertions.assertNotEquals(PackedMove.NONE, move);
+            game.makeMove(move);
+        }
+        Assertions.assertTrue(game.isInCheckmate(game.getTeamTurn()), game.toFen());
+    }
+
+
+    @Test
+    @DisplayName("Engine Consults The Tables")
+    public void engineConsultsTables() {
+        try (var engine = new Engine(1)) {
+            engine.setTablebase(tablebase);
+
+            // a covered root is answered without a search
+            var covered = ChessGame.fromFen("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+            var result = engine.search(covered, Limits.depth(4));
+            Assertions.assertEquals(0, result.getNodes());
+            Assertions.assertEquals(Tablebase.toScore(tablebase.probe(covered)), result.getScore());
+            Assertions.assertEquals(tablebase.bestMove(covered), result.getPackedBestMove());
+
+            // taking the rook reaches KQK, which a one-ply search can only score as a mate through the tables
+            var game = ChessGame.fromFen("3r3k/8/8/8/8/8/8/K2Q4 w - - 0 1");
+            result = engine.search(game, Limits.depth(1));
+            Assertions.assertEquals(PackedMove.fromChessMove(new ChessMove(new ChessPosition(1, 4),
+                    new ChessPosition(8, 4), null)), PackedMove.withoutFlags(result.getPackedBestMove()));
+            Assertions.assertTrue(result.isMate(), result.toString());
+
+            engine.setTablebase(null);
+            engine.clear();
+            Assertions.assertFalse(engine.search(game, Limits.depth(1)).isMate());
+        }
+    }
+
+
+    /**
+     * Converts the best score among the replies, each a ply further from the root, back to
+     * this position's score
+     */
+    private static int adjust(int score) {
+        return score > 0 ? score - 1 : score < 0 ? score + 1 : score;
+    }
+
+    private static int longestWin(String signature) throws IOException {
+        byte[] bytes = Files.readAllBytes(directory.resolve(signature + ".tb"));
+        int longest = 0;
+        for (int i = 16; i < bytes.length; i++) {
+            longest = Math.max(longest, bytes[i]);
+        }
+        return longest;
+    }
+
+    private static ChessGame randomGame(Material material, Random random) {
+        var board = new ChessBoard();
+        for (int slot = 0; slot < material.pieceCount(); slot++) {
+            int piece = material.piece(slot);
+            var position = new ChessPosition(1 + random.nextInt(8), 1 + random.nextInt(8));
+            if (board.getPiece(position) != null) {
+                return null;
+            }
+            var type = ChessPiece.PieceType.values()[piece % 6];
+            if (type == ChessPiece.PieceType.PAWN && (position.getRow() == 1 || position.getRow() == 8)) {
+                return null;
+            }
+            board.addPiece(position, new ChessPiece(ChessGame.TeamColor.values()[piece / 6], type));
+        }
+        var game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK);
+        var other = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return game.isInCheck(other) ? null : game;
+    }
+}
@@ -0,0 +1,69 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static passoffTests.TestFactory.*;
+
+public class UnmakeMoveTests {
+
+    @Test
+    @DisplayName("Unmake Restores Special Moves")
+    public void unmakeSpecialMoves() throws InvalidMoveException {
+        var game = getNewGame();
+        game.setBoard(loadBoard("""
+                |r| | | |k| | |r|
+                | | |P| | | |p| |
+                | | | | | | | | |
+                | | | | | | | |P|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |R|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+
+        var startBoard = new ChessBoard(game.getBoard());
+        long startKey = game.getZobristKey();
+        int startRights = game.getCastlingRights();
+
+        // castle, double push into en passant, en passant, capture-promotion
+        game.makeMove(getNewMove(getNewPosition(1, 5), getNewPosition(1, 7), null));
+        game.makeMove(getNewMove(getNewPosition(7, 7), getNewPosition(5, 7), null));
+        game.makeMove(getNewMove(getNewPosition(5, 8), getNewPosition(6, 7), null));
+        game.makeMove(getNewMove(getNewPosition(8, 1), getNewPosition(8, 2), null));
+        game.makeMove(getNewMove(getNewPosition(7, 3), getNewPosition(8, 2), ChessPiece.PieceType.QUEEN));
+        Assertions.assertEquals(5, game.getUndoDepth());
+
+        while (game.getUndoDepth() > 0) {
+            game.unmakeMove();
+        }
+
+        Assertions.assertEquals(startBoard, game.getBoard(), "Board was not restored");
+        Assertions.assertEquals(startKey, game.getZobristKey(), "Key was not restored");
+        Assertions.assertEquals(startRights, game.getCastlingRights(), "Castling rights were not restored");
+        Assertions.assertEquals(-1, game.getEnPassantSquare());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        Assertions.assertEquals(1, game.getFullmoveNumber());
+    }
+
+
+    @Test
+    @DisplayName("Validation Leaves Board Untouched")
+    public void validationLeavesBoard() {
+        var game = getNewGame();
+        var before = new ChessBoard(game.getBoard());
+        long key = game.getZobristKey();
+
+        for (int col = 1; col <= 8; col++) {
+            game.validMoves(getNewPosition(2, col));
+            game.validMoves(getNewPosition(1, col));
+        }
+
+        Assertions.assertEquals(before, game.getBoard());
+        Assertions.assertEquals(key, game.getZobristKey());
+        Assertions.assertEquals(0, game.getUndoDepth());
+        Assertions.assertThrows(IllegalStateException.class, game::unmakeMove);
+    }
+
+}
@@ -0,0 +1,94 @@
+package passoffTests.chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static passoffTests.TestFactory.*;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("Transposition Returns Same Key")
+    public void transposition() throws InvalidMoveException {
+        var game = getNewGame();
+        long start = game.getZobristKey();
+
+        // knights out and back again
+        game.makeMove(getNewMove(getNewPosition(1, 7), getNewPosition(3, 6), null));
+        Assertions.assertNotEquals(start, game.getZobristKey());
+        game.makeMove(getNewMove(getNewPosition(8, 7), getNewPosition(6, 6), null));
+        game.makeMove(getNewMove(getNewPosition(3, 6), getNewPosition(1, 7), null));
+        game.makeMove(getNewMove(getNewPosition(6, 6), getNewPosition(8, 7), null));
+
+        Assertions.assertEquals(start, game.getZobristKey(),
+                "Same pieces, side to move and castling rights should give the same key");
+    }
+
+
+    @Test
+    @DisplayName("Incremental Key Matches Fresh Key")
+    public void incrementalMatchesFresh() throws InvalidMoveException {
+        var game = getNewGame();
+        game.makeMove(getNewMove(getNewPosition(2, 5), getNewPosition(4, 5), null));
+        game.makeMove(getNewMove(getNewPosition(7, 4), getNewPosition(5, 4), null));
+        game.makeMove(getNewMove(getNewPosition(4, 5), getNewPosition(5, 4), null));
+
+        var fresh = getNewGame();
+        fresh.setBoard(new ChessBoard(game.getBoard()));
+        fresh.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        Assertions.assertEquals(fresh.getZobristKey(), game.getZobristKey());
+    }
+
+
+    @Test
+    @DisplayName("Key Covers Turn, Castling and En Passant")
+    public void keyCoversState() throws InvalidMoveException {
+        var game = getNewGame();
+        long whiteToMove = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(whiteToMove, game.getZobristKey(), "Side to move is not in the key");
+
+        // the rook leaves and comes back, but the castling right does not
+        var board = loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | |R|
+                """);
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        long canCastle = game.getZobristKey();
+        game.makeMove(getNewMove(getNewPosition(1, 8), getNewPosition(2, 8), null));
+        game.makeMove(getNewMove(getNewPosition(8, 5), getNewPosition(8, 4), null));
+        game.makeMove(getNewMove(getNewPosition(2, 8), getNewPosition(1, 8), null));
+        game.makeMove(getNewMove(getNewPosition(8, 4), getNewPosition(8, 5), null));
+        Assertions.assertEquals(0, game.getCastlingRights());
+        Assertions.assertNotEquals(canCastle, game.getZobristKey(), "Castling rights are not in the key");
+
+        // a double push next to an enemy pawn opens en passant for one turn
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | | | |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.makeMove(getNewMove(getNewPosition(7, 4), getNewPosition(5, 4), null));
+        Assertions.assertEquals(ChessBoard.squareIndex(6, 4), game.getEnPassantSquare());
+
+        var noEnPassant = getNewGame();
+        noEnPassant.setBoard(new ChessBoard(game.getBoard()));
+        Assertions.assertNotEquals(noEnPassant.getZobristKey(), game.getZobristKey(),
+                "En passant square is not in the key");
+    }
+
+}
@@ -0,0 +1,73 @@
+package passoffTests.chessTests.chessPieceTests;
+
+import chess.AttackTables;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class SlidingAttackTests {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+
+
+    @Test
+    @DisplayName("Rook Table Matches Ray Walk")
+    public void rookTable() {
+        var random = new Random(240);
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 500; i++) {
+                long occupied = random.nextLong() & random.nextLong();
+                Assertions.assertEquals(walkRays(square, occupied, ROOK_DIRECTIONS),
+                        AttackTables.rookAttacks(square, occupied), "Wrong rook attacks from square " + square);
+            }
+        }
+    }
+
+
+    @Test
+    @DisplayName("Bishop Table Matches Ray Walk")
+    public void bishopTable() {
+        var random = new Random(240);
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 500; i++) {
+                long occupied = random.nextLong() & random.nextLong();
+                Assertions.assertEquals(walkRays(square, occupied, BISHOP_DIRECTIONS),
+                        AttackTables.bishopAttacks(square, occupied), "Wrong bishop attacks from square " + square);
+            }
+        }
+    }
+
+
+    @Test
+    @DisplayName("Queen Is Rook Plus Bishop")
+    public void queenTable() {
+        long occupied = 0x00FF00000000FF00L;
+        for (int square = 0; square < 64; square++) {
+            Assertions.assertEquals(
+                    walkRays(square, occupied, ROOK_DIRECTIONS) | walkRays(square, occupied, BISHOP_DIRECTIONS),
+                    AttackTables.queenAttacks(square, occupied), "Wrong queen attacks from square " + square);
+        }
+    }
+
+
+    private static long walkRays(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+}